@@ -0,0 +1,104 @@
+package com.company.web.springdemo.config;
+
+import com.company.web.springdemo.controllers.ResponseBodyCache;
+import com.company.web.springdemo.database.ConnectionPool;
+import com.company.web.springdemo.database.PoolStatistics;
+import com.company.web.springdemo.helpers.CacheStatistics;
+import com.company.web.springdemo.repositories.CachingUserRepository;
+import com.company.web.springdemo.services.BeerQueryCache;
+import io.micrometer.core.aop.CountedAspect;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Enables {@code @Timed} and {@code @Counted} on the controller, services and SQL repositories, and
+ * publishes the connection pool and cache statistics. Percentiles and histograms for every
+ * {@code beers.*} meter are set in application.properties.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public CountedAspect countedAspect(MeterRegistry registry) {
+        return new CountedAspect(registry);
+    }
+
+    @Bean
+    public MeterBinder connectionPoolMetrics(ConnectionPool pool) {
+        return registry -> {
+            poolGauge(registry, pool, "open", PoolStatistics::getOpen);
+            poolGauge(registry, pool, "idle", PoolStatistics::getIdle);
+            poolGauge(registry, pool, "borrowed", PoolStatistics::getBorrowed);
+            poolGauge(registry, pool, "waiting", PoolStatistics::getWaiting);
+            poolGauge(registry, pool, "max", PoolStatistics::getMaxSize);
+            poolCounter(registry, pool, "db.pool.connections.created", PoolStatistics::getCreated);
+            poolCounter(registry, pool, "db.pool.connections.acquired", PoolStatistics::getAcquired);
+            poolCounter(registry, pool, "db.pool.connections.timeouts", PoolStatistics::getTimeouts);
+            poolCounter(registry, pool, "db.pool.connections.evicted", PoolStatistics::getEvicted);
+            poolCounter(registry, pool, "db.pool.connections.invalidated", PoolStatistics::getInvalidated);
+        };
+    }
+
+    @Bean
+    public MeterBinder cacheMetrics(BeerQueryCache queryCache, CachingUserRepository userCache,
+                                    ResponseBodyCache responseCache) {
+        return registry -> {
+            bindCache(registry, "beer-queries", queryCache, BeerQueryCache::getStatistics);
+            bindCache(registry, "users", userCache, CachingUserRepository::getStatistics);
+            bindCache(registry, "responses", responseCache, ResponseBodyCache::getStatistics);
+            Gauge.builder("cache.bytes", responseCache, ResponseBodyCache::getBytes)
+                    .tag("cache", "responses")
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+
+    private static void poolGauge(MeterRegistry registry, ConnectionPool pool, String state,
+                                  ToDoubleFunction<PoolStatistics> value) {
+        Gauge.builder("db.pool.connections", pool, source -> value.applyAsDouble(source.getStatistics()))
+                .tag("state", state)
+                .register(registry);
+    }
+
+    private static void poolCounter(MeterRegistry registry, ConnectionPool pool, String name,
+                                    ToDoubleFunction<PoolStatistics> value) {
+        FunctionCounter.builder(name, pool, source -> value.applyAsDouble(source.getStatistics()))
+                .register(registry);
+    }
+
+    // Meters only hold their source weakly, so bind them to the cache beans rather than to a lambda.
+    private static <T> void bindCache(MeterRegistry registry, String cache, T source,
+                                      Function<T, CacheStatistics> statistics) {
+        FunctionCounter.builder("cache.gets", source, value -> statistics.apply(value).getHits())
+                .tag("cache", cache)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", source, value -> statistics.apply(value).getMisses())
+                .tag("cache", cache)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", source, value -> statistics.apply(value).getEvictions())
+                .tag("cache", cache)
+                .register(registry);
+        FunctionCounter.builder("cache.coalesced", source, value -> statistics.apply(value).getCoalesced())
+                .tag("cache", cache)
+                .register(registry);
+        Gauge.builder("cache.size", source, value -> statistics.apply(value).getSize())
+                .tag("cache", cache)
+                .register(registry);
+    }
+
+}
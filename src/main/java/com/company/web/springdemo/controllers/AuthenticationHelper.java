@@ -27,20 +27,20 @@ public class AuthenticationHelper {
                     AUTHENTICATION_ERROR);
         }
 
-
-        if(!headers2.getFirst(AUTHORIZATION_2)
-                .equals(userService.getByUsername(headers.getFirst(AUTHORIZATION)).getPassword())){
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED,
-                    AUTHENTICATION_ERROR);
-        }
-
+        User user;
         try {
            String username = headers.getFirst(AUTHORIZATION);
-           String password = headers2.getFirst(AUTHORIZATION_2);
-           return userService.getByUsername(username);
+           user = userService.getByUsername(username);
         } catch (EntityNotFoundException e){
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED,
                     "Invalid username.");
         }
+
+        String password = headers2.getFirst(AUTHORIZATION_2);
+        if(password == null || !password.equals(user.getPassword())){
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED,
+                    AUTHENTICATION_ERROR);
+        }
+        return user;
     }
 }
@@ -3,27 +3,70 @@ package com.company.web.springdemo.controllers;
 import com.company.web.springdemo.exceptions.EntityDuplicateException;
 import com.company.web.springdemo.exceptions.EntityNotFoundException;
 import com.company.web.springdemo.exceptions.UnauthorizedOperationException;
+import com.company.web.springdemo.helpers.BeerExportWriter;
 import com.company.web.springdemo.helpers.BeerMapper;
+import com.company.web.springdemo.helpers.NdjsonWriter;
 import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerBatchOutcome;
+import com.company.web.springdemo.models.BeerBatchResult;
+import com.company.web.springdemo.models.BeerCursor;
 import com.company.web.springdemo.models.BeerDto;
-import com.company.web.springdemo.models.Style;
+import com.company.web.springdemo.models.BeerFileFormat;
+import com.company.web.springdemo.models.BeerMatch;
+import com.company.web.springdemo.models.BeerQuery;
+import com.company.web.springdemo.models.BeerSuggestion;
+import com.company.web.springdemo.models.ImportReport;
+import com.company.web.springdemo.models.BeerSortField;
 import com.company.web.springdemo.models.User;
 import com.company.web.springdemo.repositories.StyleRepository;
+import com.company.web.springdemo.services.BeerImportService;
+import com.company.web.springdemo.services.BeerSearchService;
 import com.company.web.springdemo.services.BeerService;
+import com.company.web.springdemo.services.BeerVersionTracker;
 import com.company.web.springdemo.services.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
+@Timed("beers.controller")
 @RequestMapping("/api/beers")
 public class BeerRestController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final String PAGE_SIZE_ERROR = "Limit should be between 1 and " + MAX_PAGE_SIZE + ".";
+    public static final String CURSOR_SORT_ERROR = BeerCursor.SORT_MISMATCH_ERROR;
+    public static final int MAX_SEARCH_DISTANCE = 3;
+    public static final int MAX_SEARCH_RESULTS = 100;
+    public static final String SEARCH_QUERY_ERROR = "Search query can't be empty.";
+    public static final String SEARCH_DISTANCE_ERROR = "maxDistance should be between 0 and " + MAX_SEARCH_DISTANCE + ".";
+    public static final String SEARCH_LIMIT_ERROR = "Limit should be between 1 and " + MAX_SEARCH_RESULTS + ".";
+    public static final String SUGGEST_PREFIX_ERROR = "Prefix can't be empty.";
+    public static final String SUGGEST_LIMIT_ERROR = "Limit should be between 1 and %d.";
+    public static final int MAX_BATCH_SIZE = 1000;
+    public static final String BATCH_SIZE_ERROR = "A batch should contain between 1 and " + MAX_BATCH_SIZE + " beers.";
+    public static final String BATCH_NULL_ERROR = "A batch should not contain null beers.";
+
     private final BeerService service;
     private final BeerMapper beerMapper;
     private final UserService userService;
@@ -32,36 +75,160 @@ public class BeerRestController {
 
     private final AuthenticationHelper authenticationHelper;
 
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final BeerImportService importService;
+
+    private final BeerSearchService searchService;
+
+    private final BeerVersionTracker versions;
+
+    private final ResponseBodyCache responseCache;
+
     @Autowired
-    public BeerRestController(BeerService service, BeerMapper beerMapper, UserService userService, StyleRepository styleRepository, AuthenticationHelper authenticationHelper) {
+    public BeerRestController(BeerService service, BeerMapper beerMapper, UserService userService, StyleRepository styleRepository, AuthenticationHelper authenticationHelper, ObjectMapper objectMapper, Validator validator, BeerImportService importService, BeerSearchService searchService, BeerVersionTracker versions, ResponseBodyCache responseCache) {
         this.service = service;
         this.beerMapper = beerMapper;
         this.userService = userService;
         this.styleRepository = styleRepository;
         this.authenticationHelper = authenticationHelper;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.importService = importService;
+        this.searchService = searchService;
+        this.versions = versions;
+        this.responseCache = responseCache;
     }
 
     @GetMapping
-    public List<Beer> get(
+    public ResponseEntity<?> get(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) Double minAbv,
+            @RequestParam(required = false) Double maxAbv,
+            @RequestParam(required = false) Integer styleId,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String sortOrder,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            WebRequest webRequest) {
+        // Answered from the version counter alone; a 304 never reaches the service or the repository.
+        if (webRequest.checkNotModified(versions.getCatalogueTag())) {
+            return null;
+        }
+        BeerQuery query = BeerQuery.of(name, minAbv, maxAbv, styleId, sortBy, sortOrder);
+        if (limit == null && after == null) {
+            return responseCache.get("beers", query, versions.getCatalogueVersion(), webRequest,
+                    () -> service.get(query));
+        }
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, PAGE_SIZE_ERROR);
+        }
+        BeerSortField sortField = query.getSortField();
+        BeerCursor cursor = decodeCursor(after, sortField, query.isDescending());
+
+        List<Beer> page = service.get(query.page(cursor, pageSize));
+        if (page.size() < pageSize) {
+            return ResponseEntity.ok(page);
+        }
+        BeerCursor next = BeerCursor.of(page.get(page.size() - 1), sortField, query.isDescending());
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, next.encode())
+                .body(page);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) Double minAbv,
             @RequestParam(required = false) Double maxAbv,
             @RequestParam(required = false) Integer styleId,
             @RequestParam(required = false) String sortBy,
             @RequestParam(required = false) String sortOrder) {
-        return service.get(name, minAbv, maxAbv, styleId, sortBy, sortOrder);
+        StreamingResponseBody body = outputStream -> {
+            try (NdjsonWriter writer = new NdjsonWriter(objectMapper, outputStream)) {
+                service.stream(BeerQuery.of(name, minAbv, maxAbv, styleId, sortBy, sortOrder), writer::write);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping("/search")
+    public List<BeerMatch> search(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "2") int maxDistance,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (q.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, SEARCH_QUERY_ERROR);
+        }
+        if (maxDistance < 0 || maxDistance > MAX_SEARCH_DISTANCE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, SEARCH_DISTANCE_ERROR);
+        }
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, SEARCH_LIMIT_ERROR);
+        }
+        return searchService.search(q.trim(), maxDistance, limit);
+    }
+
+    @GetMapping("/suggest")
+    public List<BeerSuggestion> suggest(@RequestParam String prefix, @RequestParam(defaultValue = "10") int limit) {
+        if (prefix.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, SUGGEST_PREFIX_ERROR);
+        }
+        int maxLimit = searchService.getSuggestLimit();
+        if (limit < 1 || limit > maxLimit) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format(SUGGEST_LIMIT_ERROR, maxLimit));
+        }
+        return searchService.suggest(prefix, limit);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        BeerFileFormat fileFormat;
+        try {
+            fileFormat = BeerFileFormat.fromName(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream target = gzip ? new GZIPOutputStream(outputStream, BeerExportWriter.BUFFER_SIZE) : outputStream;
+            try (BeerExportWriter writer = new BeerExportWriter(objectMapper, target, fileFormat)) {
+                service.stream(BeerQuery.ALL, writer::write);
+            }
+        };
+
+        String fileName = "beers." + fileFormat.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : fileFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
     }
 
     @GetMapping("/users")
-    public List<User> getAllUsers(){
-        return userService.getAll();
+    public ResponseEntity<byte[]> getAllUsers(WebRequest webRequest){
+        // Users are only changed outside the application, so there is no version to key on and the
+        // cache's TTL bounds how stale this list can be.
+        return responseCache.get("users", null, 0, webRequest, userService::getAll);
     }
 
     @GetMapping("/styles")
-    public List<Style> getAllStyles(){ return styleRepository.get();}
+    public ResponseEntity<byte[]> getAllStyles(WebRequest webRequest){
+        return responseCache.get("styles", null, styleRepository.getVersion(), webRequest, styleRepository::get);
+    }
 
     @GetMapping("/{id}")
-    public Beer get(@PathVariable int id) {
+    public Beer get(@PathVariable int id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(versions.getTag(id))) {
+            return null;
+        }
         try {
             return service.get(id);
         } catch (EntityNotFoundException e) {
@@ -83,6 +250,63 @@ public class BeerRestController {
         }
     }
 
+    @PostMapping("/batch")
+    public List<BeerBatchResult> createBatch(@RequestHeader HttpHeaders headers, @RequestBody List<BeerDto> beerDtos) {
+        if (beerDtos.isEmpty() || beerDtos.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, BATCH_SIZE_ERROR);
+        }
+        if (beerDtos.contains(null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, BATCH_NULL_ERROR);
+        }
+        User user = authenticationHelper.tryGetUser(headers, headers);
+
+        BeerBatchResult[] results = new BeerBatchResult[beerDtos.size()];
+        List<Beer> beers = new ArrayList<>();
+        List<Integer> beerIndexes = new ArrayList<>();
+        for (int i = 0; i < beerDtos.size(); i++) {
+            BeerDto beerDto = beerDtos.get(i);
+            Set<ConstraintViolation<BeerDto>> violations = validator.validate(beerDto);
+            if (!violations.isEmpty()) {
+                results[i] = BeerBatchResult.failed(i, HttpStatus.BAD_REQUEST.value(),
+                        violations.iterator().next().getMessage());
+                continue;
+            }
+            try {
+                beers.add(beerMapper.fromDto(beerDto));
+                beerIndexes.add(i);
+            } catch (EntityNotFoundException e) {
+                results[i] = BeerBatchResult.failed(i, HttpStatus.NOT_FOUND.value(), e.getMessage());
+            }
+        }
+
+        if (!beers.isEmpty()) {
+            List<BeerBatchOutcome> outcomes = service.create(beers, user);
+            for (int i = 0; i < outcomes.size(); i++) {
+                int index = beerIndexes.get(i);
+                Beer beer = beers.get(i);
+                if (outcomes.get(i) == BeerBatchOutcome.CREATED) {
+                    results[index] = BeerBatchResult.created(index, beer.getId());
+                } else {
+                    results[index] = BeerBatchResult.failed(index, HttpStatus.CONFLICT.value(),
+                            new EntityDuplicateException("Beer", "name", beer.getName()).getMessage());
+                }
+            }
+        }
+        return List.of(results);
+    }
+
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ImportReport importBeers(@RequestHeader HttpHeaders headers, InputStream body) {
+        User user = authenticationHelper.tryGetUser(headers, headers);
+        BeerFileFormat format;
+        try {
+            format = BeerFileFormat.fromMediaType(headers.getFirst(HttpHeaders.CONTENT_TYPE));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, e.getMessage());
+        }
+        return importService.importBeers(body, format, user);
+    }
+
     @PutMapping("/{id}")
     public Beer update(@RequestHeader HttpHeaders headers, @PathVariable int id, @Valid @RequestBody BeerDto beerDto) {
         try {
@@ -111,4 +335,19 @@ public class BeerRestController {
         }
     }
 
+    private static BeerCursor decodeCursor(String after, BeerSortField sortField, boolean descending) {
+        if (after == null) {
+            return null;
+        }
+        try {
+            BeerCursor cursor = BeerCursor.decode(after);
+            if (!cursor.isFor(sortField, descending)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, CURSOR_SORT_ERROR);
+            }
+            return cursor;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
 }
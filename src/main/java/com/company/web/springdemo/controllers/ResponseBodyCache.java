@@ -0,0 +1,221 @@
+package com.company.web.springdemo.controllers;
+
+import com.company.web.springdemo.helpers.CacheStatistics;
+import com.company.web.springdemo.helpers.SingleFlight;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the serialized JSON of hot read responses, both as-is and gzipped, so a hit is written to the
+ * response without running Jackson or the compressor again. Keys carry the version of the data a body
+ * was built from, so after a write the old bytes are simply never asked for again and age out of the
+ * LRU order. Entries also expire after a TTL, which bounds how stale data changed outside this node
+ * can get. The cache is bounded by the total size of the bodies it holds rather than by entry count.
+ * Both encodings of a body are sent for the same request, so any entity tag on these responses must be
+ * weak.
+ */
+@Component
+@PropertySource("classpath:application.properties")
+public class ResponseBodyCache {
+
+    private static final String GZIP = "gzip";
+
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final SingleFlight<Key, Entry> loads = new SingleFlight<>();
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public ResponseBodyCache(ObjectMapper objectMapper, Environment env) {
+        this.objectMapper = objectMapper;
+        this.maxBytes = env.getProperty("http.response-cache.max-bytes", Long.class, 16L * 1024 * 1024);
+        this.ttlMillis = env.getProperty("http.response-cache.ttl-seconds", Long.class, 30L) * 1000;
+    }
+
+    /**
+     * Returns the JSON body for {@code endpoint} and {@code query} at {@code version}, gzipped when the
+     * client accepts it, calling {@code loader} only when no such body is cached. {@code query} needs
+     * value equality; pass {@code null} for endpoints without parameters.
+     */
+    public ResponseEntity<byte[]> get(String endpoint, Object query, long version, WebRequest request,
+                                      Supplier<?> loader) {
+        Key key = new Key(endpoint, query, version);
+        Entry entry = lookup(key);
+        if (entry == null) {
+            entry = loads.execute(key, () -> {
+                Entry loaded = new Entry(serialize(loader.get()));
+                put(key, loaded);
+                return loaded;
+            });
+        }
+
+        byte[] body = entry.identity;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (entry.gzip != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            body = entry.gzip;
+            response.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        return response.contentLength(body.length).body(body);
+    }
+
+    public synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(hits.get(), misses.get(), evictions.get(), loads.getCoalesced(), entries.size());
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private synchronized Entry lookup(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+            remove(key);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry;
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        if (entry.size() > maxBytes) {
+            return;
+        }
+        remove(key);
+        entries.put(key, entry);
+        bytes += entry.size();
+
+        Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+        while (bytes > maxBytes && leastRecentlyUsed.hasNext()) {
+            Entry eldest = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            bytes -= eldest.size();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.size();
+        }
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] compress(byte[] identity) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(identity.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(identity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (!parts[0].trim().equalsIgnoreCase(GZIP)) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static final class Key {
+
+        private final String endpoint;
+        private final Object query;
+        private final long version;
+
+        private Key(String endpoint, Object query, long version) {
+            this.endpoint = endpoint;
+            this.query = query;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return version == that.version && endpoint.equals(that.endpoint) && Objects.equals(query, that.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, query, version);
+        }
+    }
+
+    private static final class Entry {
+
+        private final byte[] identity;
+        // Null when compressing doesn't make the body smaller; such bodies are always sent as-is.
+        private final byte[] gzip;
+        private final long loadedAt;
+
+        private Entry(byte[] identity) {
+            byte[] compressed = compress(identity);
+            this.identity = identity;
+            this.gzip = compressed.length < identity.length ? compressed : null;
+            this.loadedAt = System.currentTimeMillis();
+        }
+
+        private long size() {
+            return identity.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+
+}
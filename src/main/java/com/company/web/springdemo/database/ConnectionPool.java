@@ -0,0 +1,294 @@
+package com.company.web.springdemo.database;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared pool of physical JDBC connections used by all SQL repositories.
+ * Connections handed out are proxies whose {@code close()} returns the
+ * physical connection to the pool instead of closing it.
+ */
+@Component
+@PropertySource("classpath:application.properties")
+public class ConnectionPool {
+
+    private static final String TIMEOUT_ERROR = "Timed out after %d ms waiting for a database connection.";
+
+    private final String dbUrl, dbUsername, dbPassword;
+    private final int minSize, maxSize, validationTimeoutSeconds;
+    private final long acquireTimeoutMillis, idleTimeoutMillis, evictionIntervalMillis;
+
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService evictor;
+
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicInteger borrowed = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong invalidated = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private volatile boolean closed;
+
+    @Autowired
+    public ConnectionPool(Environment env) {
+        dbUrl = env.getProperty("database.url");
+        dbUsername = env.getProperty("database.username");
+        dbPassword = env.getProperty("database.password");
+        minSize = env.getProperty("database.pool.min-size", Integer.class, 2);
+        maxSize = env.getProperty("database.pool.max-size", Integer.class, 10);
+        acquireTimeoutMillis = env.getProperty("database.pool.acquire-timeout-ms", Long.class, 5000L);
+        idleTimeoutMillis = env.getProperty("database.pool.idle-timeout-ms", Long.class, 600000L);
+        validationTimeoutSeconds = env.getProperty("database.pool.validation-timeout-seconds", Integer.class, 2);
+        evictionIntervalMillis = env.getProperty("database.pool.eviction-interval-ms", Long.class, 30000L);
+
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid connection pool size: min %d, max %d.", minSize, maxSize));
+        }
+
+        permits = new Semaphore(maxSize, true);
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts the idle evictor once the pool is fully constructed, so the evictor thread never sees a
+     * partially initialised pool.
+     */
+    @PostConstruct
+    public void start() {
+        evictor.scheduleWithFixedDelay(this::evictIdle,
+                evictionIntervalMillis, evictionIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTimeoutException(String.format(TIMEOUT_ERROR, acquireTimeoutMillis));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+
+        try {
+            PooledConnection pooled = borrowIdle();
+            if (pooled == null) {
+                pooled = createConnection();
+            }
+            borrowed.incrementAndGet();
+            acquired.incrementAndGet();
+            totalWaitNanos.addAndGet(System.nanoTime() - start);
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public PoolStatistics getStatistics() {
+        return new PoolStatistics(
+                open.get(),
+                idle.size(),
+                borrowed.get(),
+                maxSize,
+                permits.getQueueLength(),
+                created.get(),
+                acquired.get(),
+                timeouts.get(),
+                evicted.get(),
+                invalidated.get(),
+                totalWaitNanos.get());
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    private PooledConnection borrowIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isValid(pooled.physical)) {
+                return pooled;
+            }
+            invalidated.incrementAndGet();
+            discard(pooled);
+        }
+        return null;
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(dbUrl, dbUsername, dbPassword);
+        open.incrementAndGet();
+        created.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        borrowed.decrementAndGet();
+        try {
+            if (closed || pooled.physical.isClosed()) {
+                discard(pooled);
+                return;
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.lastReturned = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        open.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException ignored) {
+            // The connection is being thrown away, nothing left to clean up.
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+        while (oldestFirst.hasNext() && open.get() > minSize) {
+            PooledConnection pooled = oldestFirst.next();
+            if (now - pooled.lastReturned > idleTimeoutMillis && idle.removeLastOccurrence(pooled)) {
+                evicted.incrementAndGet();
+                discard(pooled);
+            }
+        }
+
+        while (!closed && open.get() < minSize && permits.tryAcquire()) {
+            try {
+                PooledConnection pooled = createConnection();
+                pooled.lastReturned = now;
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                break;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    private final class PooledConnection {
+
+        private final Connection physical;
+        private volatile long lastReturned;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.lastReturned = System.currentTimeMillis();
+        }
+
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Lease(this));
+        }
+    }
+
+    private final class Lease implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.physical;
+                case "unwrap":
+                    // Handing out the physical connection would let callers close it behind the pool's back.
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    throw new SQLException("A pooled connection can't be unwrapped to " + args[0] + ".");
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+            }
+
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.company.web.springdemo.database;
+
+public class PoolStatistics {
+
+    private final int open;
+    private final int idle;
+    private final int borrowed;
+    private final int maxSize;
+    private final int waiting;
+    private final long created;
+    private final long acquired;
+    private final long timeouts;
+    private final long evicted;
+    private final long invalidated;
+    private final long totalWaitNanos;
+
+    public PoolStatistics(int open, int idle, int borrowed, int maxSize, int waiting, long created,
+                          long acquired, long timeouts, long evicted, long invalidated, long totalWaitNanos) {
+        this.open = open;
+        this.idle = idle;
+        this.borrowed = borrowed;
+        this.maxSize = maxSize;
+        this.waiting = waiting;
+        this.created = created;
+        this.acquired = acquired;
+        this.timeouts = timeouts;
+        this.evicted = evicted;
+        this.invalidated = invalidated;
+        this.totalWaitNanos = totalWaitNanos;
+    }
+
+    public int getOpen() {
+        return open;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getBorrowed() {
+        return borrowed;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getWaiting() {
+        return waiting;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getAcquired() {
+        return acquired;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public long getEvicted() {
+        return evicted;
+    }
+
+    public long getInvalidated() {
+        return invalidated;
+    }
+
+    public double getAverageWaitMillis() {
+        return acquired == 0 ? 0 : totalWaitNanos / (acquired * 1_000_000.0);
+    }
+
+}
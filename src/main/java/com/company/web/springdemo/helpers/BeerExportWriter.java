@@ -0,0 +1,104 @@
+package com.company.web.springdemo.helpers;
+
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerFileFormat;
+import com.company.web.springdemo.models.User;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+public class BeerExportWriter implements Closeable {
+
+    public static final String CSV_HEADER = "id,name,abv,styleId,style,createdById,createdBy";
+
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BeerFileFormat format;
+    private final BufferedWriter csv;
+    private final JsonGenerator json;
+
+    public BeerExportWriter(ObjectMapper objectMapper, OutputStream outputStream, BeerFileFormat format) throws IOException {
+        this.format = format;
+        if (format == BeerFileFormat.CSV) {
+            this.csv = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+            this.json = null;
+            csv.write(CSV_HEADER);
+            csv.write('\n');
+        } else {
+            this.csv = null;
+            this.json = objectMapper.getFactory().createGenerator(outputStream);
+            // Rows are separated by the newline written after each one, not by the default root separator (a space).
+            this.json.setRootValueSeparator(null);
+        }
+    }
+
+    public void write(Beer beer) {
+        try {
+            if (format == BeerFileFormat.CSV) {
+                writeCsv(beer);
+            } else {
+                writeJson(beer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (csv != null) {
+            csv.close();
+        } else {
+            json.close();
+        }
+    }
+
+    private void writeCsv(Beer beer) throws IOException {
+        User createdBy = beer.getCreatedBy();
+        csv.write(String.valueOf(beer.getId()));
+        csv.write(',');
+        csv.write(CsvHelper.escape(beer.getName()));
+        csv.write(',');
+        csv.write(String.valueOf(beer.getAbv()));
+        csv.write(',');
+        csv.write(String.valueOf(beer.getStyle().getId()));
+        csv.write(',');
+        csv.write(CsvHelper.escape(beer.getStyle().getName()));
+        csv.write(',');
+        if (createdBy != null) {
+            csv.write(String.valueOf(createdBy.getId()));
+            csv.write(',');
+            csv.write(CsvHelper.escape(createdBy.getUsername()));
+        } else {
+            csv.write(',');
+        }
+        csv.write('\n');
+    }
+
+    private void writeJson(Beer beer) throws IOException {
+        User createdBy = beer.getCreatedBy();
+        json.writeStartObject();
+        json.writeNumberField("id", beer.getId());
+        json.writeStringField("name", beer.getName());
+        json.writeNumberField("abv", beer.getAbv());
+        json.writeNumberField("styleId", beer.getStyle().getId());
+        json.writeStringField("style", beer.getStyle().getName());
+        if (createdBy != null) {
+            json.writeNumberField("createdById", createdBy.getId());
+            json.writeStringField("createdBy", createdBy.getUsername());
+        } else {
+            json.writeNullField("createdById");
+            json.writeNullField("createdBy");
+        }
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.company.web.springdemo.helpers;
+
+import com.company.web.springdemo.models.BeerMatch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Burkhard-Keller tree over case-folded names using Levenshtein distance. Removing the last id of a
+ * name only empties its node; the tree is rebuilt once empty nodes outnumber the live ones.
+ */
+public class BkTree {
+
+    private Node root;
+    private int liveNodes;
+    private int emptyNodes;
+
+    public void add(int id, String name) {
+        String key = name.toLowerCase();
+        if (root == null) {
+            root = new Node(key);
+            root.entries.put(id, name);
+            liveNodes++;
+            return;
+        }
+
+        Node node = root;
+        while (true) {
+            int distance = distance(key, node.key);
+            if (distance == 0) {
+                if (node.entries.isEmpty()) {
+                    emptyNodes--;
+                    liveNodes++;
+                }
+                node.entries.put(id, name);
+                return;
+            }
+            Node child = node.children.get(distance);
+            if (child == null) {
+                child = new Node(key);
+                child.entries.put(id, name);
+                node.children.put(distance, child);
+                liveNodes++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    public void remove(int id, String name) {
+        String key = name.toLowerCase();
+        Node node = root;
+        while (node != null) {
+            int distance = distance(key, node.key);
+            if (distance == 0) {
+                if (node.entries.remove(id) != null && node.entries.isEmpty()) {
+                    liveNodes--;
+                    emptyNodes++;
+                    if (emptyNodes > liveNodes) {
+                        rebuild();
+                    }
+                }
+                return;
+            }
+            node = node.children.get(distance);
+        }
+    }
+
+    public List<BeerMatch> search(String query, int maxDistance) {
+        String key = query.toLowerCase();
+        List<BeerMatch> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(key, node.key);
+            if (distance <= maxDistance) {
+                int matchDistance = distance;
+                node.entries.forEach((id, name) -> matches.add(new BeerMatch(id, name, matchDistance)));
+            }
+            // Triangle inequality: only subtrees at distance d - k .. d + k from this node can match.
+            for (int i = Math.max(1, distance - maxDistance); i <= distance + maxDistance; i++) {
+                Node child = node.children.get(i);
+                if (child != null) {
+                    pending.push(child);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private void rebuild() {
+        List<Node> nodes = new ArrayList<>();
+        Deque<Node> pending = new ArrayDeque<>();
+        if (root != null) {
+            pending.push(root);
+        }
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            nodes.add(node);
+            node.children.values().forEach(pending::push);
+        }
+
+        root = null;
+        liveNodes = 0;
+        emptyNodes = 0;
+        for (Node node : nodes) {
+            node.entries.forEach(this::add);
+        }
+    }
+
+    static int distance(String left, String right) {
+        if (left.length() < right.length()) {
+            String swap = left;
+            left = right;
+            right = swap;
+        }
+        int[] previous = new int[right.length() + 1];
+        int[] current = new int[right.length() + 1];
+        for (int j = 0; j <= right.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= left.length(); i++) {
+            current[0] = i;
+            char c = left.charAt(i - 1);
+            for (int j = 1; j <= right.length(); j++) {
+                int substitution = previous[j - 1] + (c == right.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[right.length()];
+    }
+
+    private static final class Node {
+
+        private final String key;
+        private final Map<Integer, String> entries = new HashMap<>();
+        private final Map<Integer, Node> children = new HashMap<>();
+
+        private Node(String key) {
+            this.key = key;
+        }
+    }
+
+}
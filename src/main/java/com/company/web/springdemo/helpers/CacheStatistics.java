@@ -0,0 +1,44 @@
+package com.company.web.springdemo.helpers;
+
+public class CacheStatistics {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long coalesced;
+    private final int size;
+
+    public CacheStatistics(long hits, long misses, long evictions, long coalesced, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.coalesced = coalesced;
+        this.size = size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.company.web.springdemo.helpers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+public class NdjsonWriter implements Closeable {
+
+    private static final int FLUSH_INTERVAL = 256;
+
+    private final JsonGenerator generator;
+    private final ObjectWriter writer;
+    private long written;
+
+    public NdjsonWriter(ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(outputStream);
+        // Values are separated by the newline written after each one, not by the default root separator (a space).
+        this.generator.setRootValueSeparator(null);
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public void write(Object value) {
+        try {
+            writer.writeValue(generator, value);
+            generator.writeRaw('\n');
+            written++;
+            // Flush the first row right away so time-to-first-byte doesn't depend on the result size.
+            if (written == 1 || written % FLUSH_INTERVAL == 0) {
+                generator.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+
+}
@@ -0,0 +1,315 @@
+package com.company.web.springdemo.helpers;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable sorted map backed by an AVL tree. {@link #put} and {@link #remove} copy only the path from
+ * the root to the changed node, O(log n), and return a new map that shares every other node with this
+ * one, so old versions stay valid and can be read concurrently without locking.
+ */
+public final class PersistentSortedMap<K, V> {
+
+    private static final PersistentSortedMap<?, ?> NATURAL = new PersistentSortedMap<>(null, null);
+
+    private final Comparator<? super K> comparator;
+    private final Node<K, V> root;
+
+    private PersistentSortedMap(Comparator<? super K> comparator, Node<K, V> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>, V> PersistentSortedMap<K, V> empty() {
+        return (PersistentSortedMap<K, V>) NATURAL;
+    }
+
+    public static <K, V> PersistentSortedMap<K, V> empty(Comparator<? super K> comparator) {
+        return new PersistentSortedMap<>(comparator, null);
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int order = compare(key, node.key);
+            if (order == 0) {
+                return node.value;
+            }
+            node = order < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns a map with {@code key} mapped to {@code value}, which must not be {@code null}.
+     */
+    public PersistentSortedMap<K, V> put(K key, V value) {
+        Node<K, V> next = put(root, key, value);
+        return next == root ? this : new PersistentSortedMap<>(comparator, next);
+    }
+
+    public PersistentSortedMap<K, V> remove(K key) {
+        Node<K, V> next = remove(root, key);
+        return next == root ? this : new PersistentSortedMap<>(comparator, next);
+    }
+
+    /**
+     * Unmodifiable view of the values in ascending key order.
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator<>(PersistentSortedMap.this, null, null, false);
+            }
+
+            @Override
+            public int size() {
+                return PersistentSortedMap.this.size();
+            }
+        };
+    }
+
+    public Stream<V> values(boolean descending) {
+        return values(null, null, descending);
+    }
+
+    /**
+     * Values whose keys lie between {@code from} and {@code to}, both inclusive; a {@code null} bound is
+     * open.
+     */
+    public Stream<V> values(K from, K to, boolean descending) {
+        Iterator<V> iterator = new ValueIterator<>(this, from, to, descending);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    public Stream<K> keys() {
+        Iterator<Node<K, V>> nodes = new NodeIterator<>(this, null, null, false);
+        Iterator<K> keys = new Iterator<K>() {
+            @Override
+            public boolean hasNext() {
+                return nodes.hasNext();
+            }
+
+            @Override
+            public K next() {
+                return nodes.next().key;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliterator(keys, size(),
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
+
+    private Node<K, V> put(Node<K, V> node, K key, V value) {
+        if (node == null) {
+            return new Node<>(key, value, null, null);
+        }
+        int order = compare(key, node.key);
+        if (order == 0) {
+            return node.value == value ? node : new Node<>(key, value, node.left, node.right);
+        }
+        if (order < 0) {
+            Node<K, V> left = put(node.left, key, value);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        Node<K, V> right = put(node.right, key, value);
+        return right == node.right ? node : balance(node.key, node.value, node.left, right);
+    }
+
+    private Node<K, V> remove(Node<K, V> node, K key) {
+        if (node == null) {
+            return null;
+        }
+        int order = compare(key, node.key);
+        if (order < 0) {
+            Node<K, V> left = remove(node.left, key);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        if (order > 0) {
+            Node<K, V> right = remove(node.right, key);
+            return right == node.right ? node : balance(node.key, node.value, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node<K, V> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, node.left, removeFirst(node.right));
+    }
+
+    private Node<K, V> removeFirst(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.value, removeFirst(node.left), node.right);
+    }
+
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int skew = height(left) - height(right);
+        if (skew > 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left.left, left.right, left.key, left.value);
+            }
+            return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+        }
+        if (skew < -1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.left, right.right, right.key, right.value);
+            }
+            return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    private static <K, V> Node<K, V> rotateLeft(Node<K, V> left, Node<K, V> right, K key, V value) {
+        return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+    }
+
+    private static <K, V> Node<K, V> rotateRight(Node<K, V> left, Node<K, V> right, K key, V value) {
+        return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(K left, K right) {
+        return comparator == null
+                ? ((Comparable<? super K>) left).compareTo(right)
+                : comparator.compare(left, right);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private final V value;
+        private final Node<K, V> left;
+        private final Node<K, V> right;
+        private final int height;
+        private final int size;
+
+        private Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    /**
+     * In-order walk between two optional inclusive bounds, holding only the current path on a stack.
+     */
+    private static final class NodeIterator<K, V> implements Iterator<Node<K, V>> {
+
+        private final PersistentSortedMap<K, V> map;
+        private final K from;
+        private final K to;
+        private final boolean descending;
+        private final Deque<Node<K, V>> path = new ArrayDeque<>();
+
+        private NodeIterator(PersistentSortedMap<K, V> map, K from, K to, boolean descending) {
+            this.map = map;
+            this.from = from;
+            this.to = to;
+            this.descending = descending;
+            descend(map.root);
+        }
+
+        // Pushes the nodes leading to the first in-range key of the subtree, in iteration order.
+        private void descend(Node<K, V> node) {
+            while (node != null) {
+                if (descending) {
+                    if (to != null && map.compare(node.key, to) > 0) {
+                        node = node.left;
+                    } else {
+                        path.push(node);
+                        node = node.right;
+                    }
+                } else {
+                    if (from != null && map.compare(node.key, from) < 0) {
+                        node = node.right;
+                    } else {
+                        path.push(node);
+                        node = node.left;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (path.isEmpty()) {
+                return false;
+            }
+            K key = path.peek().key;
+            return descending
+                    ? from == null || map.compare(key, from) >= 0
+                    : to == null || map.compare(key, to) <= 0;
+        }
+
+        @Override
+        public Node<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = path.pop();
+            descend(descending ? node.left : node.right);
+            return node;
+        }
+    }
+
+    private static final class ValueIterator<K, V> implements Iterator<V> {
+
+        private final NodeIterator<K, V> nodes;
+
+        private ValueIterator(PersistentSortedMap<K, V> map, K from, K to, boolean descending) {
+            this.nodes = new NodeIterator<>(map, from, to, descending);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nodes.hasNext();
+        }
+
+        @Override
+        public V next() {
+            return nodes.next().value;
+        }
+    }
+
+}
@@ -0,0 +1,291 @@
+package com.company.web.springdemo.helpers;
+
+import com.company.web.springdemo.models.BeerSuggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Radix trie over case-folded names: each edge carries the longest run of characters its names share,
+ * so there are at most two nodes per name however long the names are. Children are kept in parallel
+ * sorted arrays keyed by the first character of their edge, and every node caches the best {@code topK}
+ * entries of its subtree (shortest name first, then alphabetically), so a suggestion is a walk down the
+ * prefix and a copy of that node's cache.
+ */
+public class PrefixTrie {
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private static final Comparator<Entry> RANKING = Comparator.comparingInt((Entry entry) -> entry.folded.length())
+            .thenComparing(entry -> entry.folded)
+            .thenComparingInt(entry -> entry.id);
+
+    private final int topK;
+    private final Node root = new Node("");
+
+    public PrefixTrie(int topK) {
+        this.topK = topK;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public void add(int id, String name) {
+        Entry entry = new Entry(id, name);
+        String folded = entry.folded;
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int depth = 0;
+        path.add(node);
+        while (depth < folded.length()) {
+            Node child = node.child(folded.charAt(depth));
+            if (child == null) {
+                child = new Node(folded.substring(depth));
+                node.addChild(child);
+            } else {
+                int common = commonPrefix(child.label, folded, depth);
+                if (common < child.label.length()) {
+                    child = split(node, child, common);
+                }
+            }
+            node = child;
+            depth += child.label.length();
+            path.add(node);
+        }
+
+        if (indexOf(node.entries, id) >= 0) {
+            return;
+        }
+        node.entries = insert(node.entries, entry, node.entries.length);
+        for (Node step : path) {
+            step.offer(entry, topK);
+        }
+    }
+
+    public void remove(int id, String name) {
+        String folded = name.toLowerCase();
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int depth = 0;
+        path.add(node);
+        while (depth < folded.length()) {
+            node = node.child(folded.charAt(depth));
+            if (node == null || !folded.startsWith(node.label, depth)) {
+                return;
+            }
+            depth += node.label.length();
+            path.add(node);
+        }
+        int index = indexOf(node.entries, id);
+        if (index < 0) {
+            return;
+        }
+        Entry removed = node.entries[index];
+        node.entries = delete(node.entries, index);
+
+        // Bottom-up, so every parent recomputes from children whose caches are already correct. A child
+        // left without names is dropped, and one left with a single child is merged into it.
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node step = path.get(i);
+            if (i < path.size() - 1) {
+                Node child = path.get(i + 1);
+                if (child.isEmpty()) {
+                    step.removeChild(child.label.charAt(0));
+                } else if (child.entries.length == 0 && child.children.length == 1) {
+                    Node grandchild = child.children[0];
+                    grandchild.label = child.label + grandchild.label;
+                    step.replaceChild(grandchild);
+                }
+            }
+            if (indexOf(step.top, removed) >= 0) {
+                step.recompute(topK);
+            }
+        }
+    }
+
+    public List<BeerSuggestion> suggest(String prefix, int limit) {
+        Node node = find(prefix.toLowerCase());
+        List<BeerSuggestion> suggestions = new ArrayList<>();
+        if (node == null) {
+            return suggestions;
+        }
+        Entry[] top = node.top;
+        for (int i = 0; i < top.length && i < limit; i++) {
+            suggestions.add(new BeerSuggestion(top[i].id, top[i].name));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns the highest node whose subtree holds exactly the names starting with {@code folded}; the
+     * prefix may end part-way along that node's edge.
+     */
+    private Node find(String folded) {
+        Node node = root;
+        int depth = 0;
+        while (depth < folded.length()) {
+            node = node.child(folded.charAt(depth));
+            if (node == null) {
+                return null;
+            }
+            int common = commonPrefix(node.label, folded, depth);
+            if (depth + common == folded.length()) {
+                return node;
+            }
+            if (common < node.label.length()) {
+                return null;
+            }
+            depth += common;
+        }
+        return node;
+    }
+
+    // Puts a node for the first {@code length} characters of child's edge between parent and child.
+    private static Node split(Node parent, Node child, int length) {
+        Node middle = new Node(child.label.substring(0, length));
+        middle.top = child.top;
+        child.label = child.label.substring(length);
+        middle.addChild(child);
+        parent.replaceChild(middle);
+        return middle;
+    }
+
+    private static int commonPrefix(String label, String folded, int from) {
+        int length = Math.min(label.length(), folded.length() - from);
+        int i = 0;
+        while (i < length && label.charAt(i) == folded.charAt(from + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int indexOf(Entry[] entries, int id) {
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i].id == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(Entry[] entries, Entry entry) {
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] == entry) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Entry[] insert(Entry[] entries, Entry entry, int index) {
+        Entry[] result = new Entry[entries.length + 1];
+        System.arraycopy(entries, 0, result, 0, index);
+        result[index] = entry;
+        System.arraycopy(entries, index, result, index + 1, entries.length - index);
+        return result;
+    }
+
+    private static Entry[] delete(Entry[] entries, int index) {
+        if (entries.length == 1) {
+            return NO_ENTRIES;
+        }
+        Entry[] result = new Entry[entries.length - 1];
+        System.arraycopy(entries, 0, result, 0, index);
+        System.arraycopy(entries, index + 1, result, index, entries.length - index - 1);
+        return result;
+    }
+
+    private static final class Node {
+
+        private String label;
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        private Entry[] entries = NO_ENTRIES;
+        private Entry[] top = NO_ENTRIES;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index < 0 ? null : children[index];
+        }
+
+        private void addChild(Node child) {
+            int index = -Arrays.binarySearch(labels, child.label.charAt(0)) - 1;
+            char[] nextLabels = new char[labels.length + 1];
+            Node[] nextChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, nextLabels, 0, index);
+            System.arraycopy(children, 0, nextChildren, 0, index);
+            nextLabels[index] = child.label.charAt(0);
+            nextChildren[index] = child;
+            System.arraycopy(labels, index, nextLabels, index + 1, labels.length - index);
+            System.arraycopy(children, index, nextChildren, index + 1, children.length - index);
+            labels = nextLabels;
+            children = nextChildren;
+        }
+
+        // Swaps in a node whose edge starts with the same character as the one it replaces.
+        private void replaceChild(Node child) {
+            children[Arrays.binarySearch(labels, child.label.charAt(0))] = child;
+        }
+
+        private void removeChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index < 0) {
+                return;
+            }
+            char[] nextLabels = new char[labels.length - 1];
+            Node[] nextChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, nextLabels, 0, index);
+            System.arraycopy(children, 0, nextChildren, 0, index);
+            System.arraycopy(labels, index + 1, nextLabels, index, labels.length - index - 1);
+            System.arraycopy(children, index + 1, nextChildren, index, children.length - index - 1);
+            labels = nextLabels;
+            children = nextChildren;
+        }
+
+        private boolean isEmpty() {
+            return entries.length == 0 && children.length == 0;
+        }
+
+        private void offer(Entry entry, int topK) {
+            if (top.length == topK && RANKING.compare(entry, top[topK - 1]) >= 0) {
+                return;
+            }
+            int index = Arrays.binarySearch(top, entry, RANKING);
+            Entry[] next = insert(top, entry, -index - 1);
+            top = next.length > topK ? Arrays.copyOf(next, topK) : next;
+        }
+
+        private void recompute(int topK) {
+            // Each child's cache already holds the best entries of its subtree, so they are all we need.
+            List<Entry> candidates = new ArrayList<>(Arrays.asList(entries));
+            for (Node child : children) {
+                candidates.addAll(Arrays.asList(child.top));
+            }
+            candidates.sort(RANKING);
+            top = candidates.subList(0, Math.min(topK, candidates.size())).toArray(NO_ENTRIES);
+        }
+    }
+
+    private static final class Entry {
+
+        private final int id;
+        private final String name;
+        private final String folded;
+
+        private Entry(int id, String name) {
+            this.id = id;
+            this.name = name;
+            this.folded = name.toLowerCase();
+        }
+    }
+
+}
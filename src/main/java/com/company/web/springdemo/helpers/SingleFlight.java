@@ -0,0 +1,64 @@
+package com.company.web.springdemo.helpers;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one execution: the first caller runs the loader and
+ * everyone arriving while it runs waits for it, sharing its result or its exception.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public V execute(K key, Supplier<V> loader) {
+        calls.incrementAndGet();
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return await(existing);
+        }
+
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+}
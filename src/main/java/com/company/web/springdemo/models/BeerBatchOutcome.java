@@ -0,0 +1,11 @@
+package com.company.web.springdemo.models;
+
+/**
+ * What happened to one beer of a batch create; created beers also carry their new id.
+ */
+public enum BeerBatchOutcome {
+
+    CREATED,
+    DUPLICATE_NAME
+
+}
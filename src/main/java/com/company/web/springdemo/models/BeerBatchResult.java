@@ -0,0 +1,65 @@
+package com.company.web.springdemo.models;
+
+public class BeerBatchResult {
+
+    public static final int STATUS_CREATED = 201;
+
+    private int index;
+
+    private Integer id;
+
+    private int status;
+
+    private String message;
+
+    public BeerBatchResult() {
+    }
+
+    public BeerBatchResult(int index, Integer id, int status, String message) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.message = message;
+    }
+
+    public static BeerBatchResult created(int index, int id) {
+        return new BeerBatchResult(index, id, STATUS_CREATED, null);
+    }
+
+    public static BeerBatchResult failed(int index, int status, String message) {
+        return new BeerBatchResult(index, null, status, message);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.company.web.springdemo.models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+public class BeerCursor {
+
+    public static final String INVALID_CURSOR_ERROR = "Invalid pagination cursor.";
+    public static final String SORT_MISMATCH_ERROR = "The cursor was issued for a different sort order.";
+
+    private static final String ASCENDING = "asc";
+    private static final String DESCENDING = "desc";
+
+    private final BeerSortField sortField;
+    private final boolean descending;
+    private final String key;
+    private final int id;
+    private final double abv;
+
+    public BeerCursor(BeerSortField sortField, boolean descending, String key, int id) {
+        this.sortField = sortField;
+        this.descending = descending;
+        this.key = key;
+        this.id = id;
+        this.abv = sortField == BeerSortField.ABV ? Double.parseDouble(key) : 0;
+    }
+
+    public static BeerCursor of(Beer beer, BeerSortField sortField, boolean descending) {
+        switch (sortField) {
+            case NAME:
+                return new BeerCursor(sortField, descending, beer.getName(), beer.getId());
+            case ABV:
+                return new BeerCursor(sortField, descending, String.valueOf(beer.getAbv()), beer.getId());
+            case STYLE:
+                return new BeerCursor(sortField, descending, beer.getStyle().getName(), beer.getId());
+            default:
+                return new BeerCursor(sortField, descending, "", beer.getId());
+        }
+    }
+
+    public static BeerCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split("\\|", 4);
+            if (parts.length != 4 || !(parts[1].equals(ASCENDING) || parts[1].equals(DESCENDING))) {
+                throw new IllegalArgumentException(INVALID_CURSOR_ERROR);
+            }
+            return new BeerCursor(BeerSortField.valueOf(parts[0]), parts[1].equals(DESCENDING), parts[3],
+                    Integer.parseInt(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(INVALID_CURSOR_ERROR, e);
+        }
+    }
+
+    public String encode() {
+        String raw = sortField.name() + "|" + (descending ? DESCENDING : ASCENDING) + "|" + id + "|" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public BeerSortField getSortField() {
+        return sortField;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * Whether this cursor continues a listing in the given order; a cursor is only meaningful for the
+     * order it was issued in.
+     */
+    public boolean isFor(BeerSortField sortField, boolean descending) {
+        return this.sortField == sortField && this.descending == descending;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public double getAbv() {
+        return abv;
+    }
+
+    public boolean precedes(Beer beer) {
+        int result = compareKey(beer);
+        if (result == 0) {
+            result = Integer.compare(beer.getId(), id);
+        }
+        return descending ? result < 0 : result > 0;
+    }
+
+    private int compareKey(Beer beer) {
+        switch (sortField) {
+            case NAME:
+                return beer.getName().compareTo(key);
+            case ABV:
+                return Double.compare(beer.getAbv(), abv);
+            case STYLE:
+                return beer.getStyle().getName().compareTo(key);
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BeerCursor that = (BeerCursor) o;
+        return id == that.id && descending == that.descending && sortField == that.sortField
+                && key.equals(that.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sortField, descending, key, id);
+    }
+
+}
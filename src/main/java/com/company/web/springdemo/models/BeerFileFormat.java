@@ -0,0 +1,45 @@
+package com.company.web.springdemo.models;
+
+public enum BeerFileFormat {
+
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String mediaType;
+    private final String extension;
+
+    BeerFileFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static BeerFileFormat fromName(String name) {
+        for (BeerFileFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported file format: " + name + ".");
+    }
+
+    public static BeerFileFormat fromMediaType(String contentType) {
+        if (contentType != null) {
+            String mediaType = contentType.split(";")[0].trim();
+            for (BeerFileFormat format : values()) {
+                if (format.mediaType.equalsIgnoreCase(mediaType)) {
+                    return format;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unsupported file format: " + contentType + ".");
+    }
+
+}
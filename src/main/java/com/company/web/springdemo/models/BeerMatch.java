@@ -0,0 +1,44 @@
+package com.company.web.springdemo.models;
+
+public class BeerMatch {
+
+    private int id;
+
+    private String name;
+
+    private int distance;
+
+    public BeerMatch() {
+    }
+
+    public BeerMatch(int id, String name, int distance) {
+        this.id = id;
+        this.name = name;
+        this.distance = distance;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getDistance() {
+        return distance;
+    }
+
+    public void setDistance(int distance) {
+        this.distance = distance;
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.company.web.springdemo.models;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Immutable description of a catalogue read. The filters are compiled once into a single predicate
+ * and the sort into a direction-aware comparator, so evaluating a query is one pass over the
+ * candidates; a bounded query keeps only the best {@code limit} rows in a heap instead of sorting all of them.
+ * Equality compares the case-folded name, matching how the filter is applied, so it can key caches.
+ */
+public class BeerQuery {
+
+    public static final BeerQuery ALL = of(null, null, null, null, null, null);
+
+    private final String name;
+    private final Double minAbv;
+    private final Double maxAbv;
+    private final Integer styleId;
+    private final BeerSortField sortField;
+    private final boolean descending;
+    private final BeerCursor after;
+    private final Integer limit;
+
+    private final String foldedName;
+    private final Predicate<Beer> predicate;
+    private final Comparator<Beer> comparator;
+
+    public BeerQuery(String name, Double minAbv, Double maxAbv, Integer styleId,
+                     BeerSortField sortField, boolean descending, BeerCursor after, Integer limit) {
+        this.name = name == null || name.isEmpty() ? null : name;
+        this.minAbv = minAbv;
+        this.maxAbv = maxAbv;
+        this.styleId = styleId;
+        this.sortField = sortField == null ? BeerSortField.ID : sortField;
+        this.descending = descending;
+        if (after != null && !after.isFor(this.sortField, descending)) {
+            throw new IllegalArgumentException(BeerCursor.SORT_MISMATCH_ERROR);
+        }
+        this.after = after;
+        this.limit = limit;
+
+        this.foldedName = this.name == null ? null : this.name.toLowerCase();
+        this.predicate = compilePredicate();
+        Comparator<Beer> order = this.sortField.comparator().thenComparingInt(Beer::getId);
+        this.comparator = descending ? order.reversed() : order;
+    }
+
+    public static BeerQuery of(String name, Double minAbv, Double maxAbv, Integer styleId,
+                               String sortBy, String sortOrder) {
+        return new BeerQuery(name, minAbv, maxAbv, styleId,
+                BeerSortField.from(sortBy), BeerSortField.isDescending(sortOrder), null, null);
+    }
+
+    public BeerQuery page(BeerCursor after, int limit) {
+        return new BeerQuery(name, minAbv, maxAbv, styleId, sortField, descending, after, limit);
+    }
+
+    public boolean matches(Beer beer) {
+        return predicate.test(beer);
+    }
+
+    public Comparator<Beer> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Filters and orders {@code candidates}. Without a limit the matches are sorted once; with one,
+     * a heap holding the current worst of the best {@code limit} rows at its head bounds both memory and work.
+     */
+    public List<Beer> select(Stream<Beer> candidates) {
+        return top(candidates.filter(predicate));
+    }
+
+    /**
+     * Orders rows that are already known to match and keeps the first {@code limit} of them.
+     */
+    public List<Beer> top(Stream<Beer> matching) {
+        if (limit == null) {
+            return matching.sorted(comparator).collect(Collectors.toList());
+        }
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        PriorityQueue<Beer> best = new PriorityQueue<>(Math.min(limit, 1024), comparator.reversed());
+        matching.forEachOrdered(beer -> {
+            if (best.size() < limit) {
+                best.add(beer);
+            } else if (comparator.compare(beer, best.peek()) < 0) {
+                best.poll();
+                best.add(beer);
+            }
+        });
+        List<Beer> result = new ArrayList<>(best);
+        result.sort(comparator);
+        return result;
+    }
+
+    /**
+     * Filters rows that already arrive in query order, stopping once the limit is reached.
+     */
+    public List<Beer> selectOrdered(Stream<Beer> candidates) {
+        Stream<Beer> matching = candidates.filter(predicate);
+        if (limit != null) {
+            matching = matching.limit(Math.max(limit, 0));
+        }
+        return matching.collect(Collectors.toList());
+    }
+
+    public boolean isAfterCursor(Beer beer) {
+        return after == null || after.precedes(beer);
+    }
+
+    private Predicate<Beer> compilePredicate() {
+        String needle = foldedName;
+        double min = minAbv == null ? Double.NEGATIVE_INFINITY : minAbv;
+        double max = maxAbv == null ? Double.POSITIVE_INFINITY : maxAbv;
+        boolean anyStyle = styleId == null;
+        int style = anyStyle ? 0 : styleId;
+        BeerCursor cursor = after;
+        return beer -> {
+            double abv = beer.getAbv();
+            return abv >= min && abv <= max
+                    && (anyStyle || beer.getStyle().getId() == style)
+                    && (needle == null || beer.getName().toLowerCase().contains(needle))
+                    && (cursor == null || cursor.precedes(beer));
+        };
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getFoldedName() {
+        return foldedName;
+    }
+
+    public Double getMinAbv() {
+        return minAbv;
+    }
+
+    public Double getMaxAbv() {
+        return maxAbv;
+    }
+
+    public Integer getStyleId() {
+        return styleId;
+    }
+
+    public BeerSortField getSortField() {
+        return sortField;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public BeerCursor getAfter() {
+        return after;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BeerQuery that = (BeerQuery) o;
+        return descending == that.descending
+                && Objects.equals(foldedName, that.foldedName)
+                && Objects.equals(minAbv, that.minAbv)
+                && Objects.equals(maxAbv, that.maxAbv)
+                && Objects.equals(styleId, that.styleId)
+                && sortField == that.sortField
+                && Objects.equals(after, that.after)
+                && Objects.equals(limit, that.limit);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(foldedName, minAbv, maxAbv, styleId, sortField, descending, after, limit);
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.company.web.springdemo.models;
+
+import java.util.Comparator;
+
+public enum BeerSortField {
+
+    ID(Comparator.comparingInt(Beer::getId)),
+    NAME(Comparator.comparing(Beer::getName)),
+    ABV(Comparator.comparingDouble(Beer::getAbv)),
+    STYLE(Comparator.comparing(beer -> beer.getStyle().getName()));
+
+    private final Comparator<Beer> comparator;
+
+    BeerSortField(Comparator<Beer> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<Beer> comparator() {
+        return comparator;
+    }
+
+    public static BeerSortField from(String sortBy) {
+        if (sortBy == null || sortBy.isEmpty()) {
+            return ID;
+        }
+        switch (sortBy.toLowerCase()) {
+            case "name":
+                return NAME;
+            case "abv":
+                return ABV;
+            case "style":
+                return STYLE;
+            default:
+                return ID;
+        }
+    }
+
+    public static boolean isDescending(String sortOrder) {
+        return "desc".equalsIgnoreCase(sortOrder);
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.company.web.springdemo.models;
+
+public class BeerSuggestion {
+
+    private int id;
+
+    private String name;
+
+    public BeerSuggestion() {
+    }
+
+    public BeerSuggestion(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+}
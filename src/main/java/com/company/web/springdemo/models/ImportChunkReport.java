@@ -0,0 +1,68 @@
+package com.company.web.springdemo.models;
+
+import java.util.List;
+
+public class ImportChunkReport {
+
+    private int chunk;
+
+    private long firstLine;
+
+    private int imported;
+
+    private int failed;
+
+    private List<String> errors;
+
+    public ImportChunkReport() {
+    }
+
+    public ImportChunkReport(int chunk, long firstLine, int imported, int failed, List<String> errors) {
+        this.chunk = chunk;
+        this.firstLine = firstLine;
+        this.imported = imported;
+        this.failed = failed;
+        this.errors = errors;
+    }
+
+    public int getChunk() {
+        return chunk;
+    }
+
+    public void setChunk(int chunk) {
+        this.chunk = chunk;
+    }
+
+    public long getFirstLine() {
+        return firstLine;
+    }
+
+    public void setFirstLine(long firstLine) {
+        this.firstLine = firstLine;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public void setImported(int imported) {
+        this.imported = imported;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.company.web.springdemo.models;
+
+import java.util.List;
+
+public class ImportReport {
+
+    private long imported;
+
+    private long failed;
+
+    private List<ImportChunkReport> chunks;
+
+    public ImportReport() {
+    }
+
+    public ImportReport(List<ImportChunkReport> chunks) {
+        this.chunks = chunks;
+        for (ImportChunkReport chunk : chunks) {
+            imported += chunk.getImported();
+            failed += chunk.getFailed();
+        }
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public List<ImportChunkReport> getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(List<ImportChunkReport> chunks) {
+        this.chunks = chunks;
+    }
+
+}
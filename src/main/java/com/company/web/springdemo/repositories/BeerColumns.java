@@ -0,0 +1,304 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerQuery;
+import com.company.web.springdemo.models.BeerSortField;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Column-oriented copy of one snapshot: parallel primitive arrays in id order plus dictionary-encoded
+ * folded names, and a permutation of the positions sorted by abv. Each snapshot's columns are derived
+ * from the previous ones by {@link #apply}, on the writer's side. Range, style and name filters run as
+ * plain loops over the arrays, either over every position or only over a candidate set, and only the
+ * surviving positions are turned back into {@link Beer} rows.
+ */
+class BeerColumns {
+
+    private final Beer[] rows;
+    private final int[] ids;
+    private final double[] abv;
+    private final int[] styleIds;
+    private final int[] nameCodes;
+    private final String[] names;
+    private final int[] abvOrder;
+    private final double[] sortedAbv;
+
+    static final BeerColumns EMPTY = new BeerColumns(new Beer[0], new int[0], new double[0], new int[0],
+            new int[0], new String[0], new int[0]);
+
+    private BeerColumns(Beer[] rows, int[] ids, double[] abv, int[] styleIds, int[] nameCodes, String[] names,
+                        int[] abvOrder) {
+        this.rows = rows;
+        this.ids = ids;
+        this.abv = abv;
+        this.styleIds = styleIds;
+        this.nameCodes = nameCodes;
+        this.names = names;
+        this.abvOrder = abvOrder;
+        this.sortedAbv = new double[abvOrder.length];
+        for (int k = 0; k < abvOrder.length; k++) {
+            sortedAbv[k] = abv[abvOrder[k]];
+        }
+    }
+
+    /**
+     * Returns columns without {@code removed} and with {@code added}; a row in both is replaced. Only
+     * the new rows are sorted, by id and by abv, and then merged with the surviving rows, which keep
+     * both of their orders, so a write costs one sequential copy of the arrays. New names are appended
+     * to the dictionary, which is rebuilt once removed rows have left it mostly unused.
+     */
+    BeerColumns apply(Collection<Beer> removed, Collection<Beer> added) {
+        if (removed.isEmpty() && added.isEmpty()) {
+            return this;
+        }
+        Set<Integer> removedIds = new HashSet<>();
+        removed.forEach(beer -> removedIds.add(beer.getId()));
+        Beer[] incoming = added.toArray(new Beer[0]);
+        Arrays.sort(incoming, Comparator.comparingInt(Beer::getId));
+
+        int[] moved = new int[rows.length];
+        int survivors = 0;
+        for (int i = 0; i < rows.length; i++) {
+            moved[i] = removedIds.contains(ids[i]) ? -1 : survivors++;
+        }
+        int size = survivors + incoming.length;
+        Beer[] nextRows = new Beer[size];
+        int[] nextIds = new int[size];
+        double[] nextAbv = new double[size];
+        int[] nextStyleIds = new int[size];
+        int[] nextNameCodes = new int[size];
+        int[] placed = new int[incoming.length];
+
+        Map<String, Integer> newCodes = new HashMap<>();
+        List<String> newNames = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < size; k++) {
+            while (i < rows.length && moved[i] < 0) {
+                i++;
+            }
+            if (j < incoming.length && (i == rows.length || incoming[j].getId() < ids[i])) {
+                Beer beer = incoming[j];
+                nextRows[k] = beer;
+                nextIds[k] = beer.getId();
+                nextAbv[k] = beer.getAbv();
+                nextStyleIds[k] = beer.getStyle().getId();
+                String folded = BeerIndex.fold(beer.getName());
+                Integer code = newCodes.get(folded);
+                if (code == null) {
+                    code = names.length + newNames.size();
+                    newCodes.put(folded, code);
+                    newNames.add(folded);
+                }
+                nextNameCodes[k] = code;
+                placed[j++] = k;
+            } else {
+                moved[i] = k;
+                nextRows[k] = rows[i];
+                nextIds[k] = ids[i];
+                nextAbv[k] = abv[i];
+                nextStyleIds[k] = styleIds[i];
+                nextNameCodes[k] = nameCodes[i];
+                i++;
+            }
+        }
+        String[] nextNames = names;
+        if (!newNames.isEmpty()) {
+            nextNames = Arrays.copyOf(names, names.length + newNames.size());
+            for (int n = 0; n < newNames.size(); n++) {
+                nextNames[names.length + n] = newNames.get(n);
+            }
+        }
+        if (nextNames.length > 2 * size + 16) {
+            nextNames = encode(nextNames, nextNameCodes);
+        }
+
+        // Both inputs are already in (abv, id) order: the survivors as they were, the new rows after sorting.
+        int[] incomingByAbv = IntStream.range(0, incoming.length)
+                .boxed()
+                .sorted(Comparator.<Integer>comparingDouble(n -> incoming[n].getAbv())
+                        .thenComparingInt(n -> incoming[n].getId()))
+                .mapToInt(n -> placed[n])
+                .toArray();
+        int[] nextAbvOrder = new int[size];
+        int a = 0;
+        int b = 0;
+        for (int k = 0; k < size; k++) {
+            while (a < abvOrder.length && moved[abvOrder[a]] < 0) {
+                a++;
+            }
+            int survivor = a < abvOrder.length ? moved[abvOrder[a]] : -1;
+            if (b < incomingByAbv.length && (survivor < 0
+                    || precedesByAbv(nextAbv, nextIds, incomingByAbv[b], survivor))) {
+                nextAbvOrder[k] = incomingByAbv[b++];
+            } else {
+                nextAbvOrder[k] = survivor;
+                a++;
+            }
+        }
+        return new BeerColumns(nextRows, nextIds, nextAbv, nextStyleIds, nextNameCodes, nextNames, nextAbvOrder);
+    }
+
+    // Re-encodes codes against only the names still in use, in place, and returns the new dictionary.
+    private static String[] encode(String[] names, int[] codes) {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> distinct = new ArrayList<>();
+        for (int k = 0; k < codes.length; k++) {
+            String name = names[codes[k]];
+            Integer code = dictionary.get(name);
+            if (code == null) {
+                code = distinct.size();
+                dictionary.put(name, code);
+                distinct.add(name);
+            }
+            codes[k] = code;
+        }
+        return distinct.toArray(new String[0]);
+    }
+
+    private static boolean precedesByAbv(double[] abv, int[] ids, int left, int right) {
+        int order = Double.compare(abv[left], abv[right]);
+        return order < 0 || (order == 0 && ids[left] < ids[right]);
+    }
+
+    int size() {
+        return rows.length;
+    }
+
+    /**
+     * Positions of {@code candidateIds}, all of which must be rows of this snapshot.
+     */
+    int[] positions(int[] candidateIds) {
+        int[] positions = new int[candidateIds.length];
+        for (int i = 0; i < candidateIds.length; i++) {
+            positions[i] = Arrays.binarySearch(ids, candidateIds[i]);
+        }
+        return positions;
+    }
+
+    /**
+     * Positions of the rows with {@code from <= abv <= to}, in abv order.
+     */
+    int[] abvRange(double from, double to) {
+        if (from > to) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(abvOrder, firstAtLeast(from, false), firstAtLeast(to, true));
+    }
+
+    /**
+     * Scans only {@code positions}, or every row when it is {@code null}; the query's filters are still
+     * applied to each of them.
+     */
+    Scan scan(BeerQuery query, int[] positions) {
+        return new Scan(query, positions);
+    }
+
+    // Index of the first sorted abv that is >= value, or > value when exclusive.
+    private int firstAtLeast(double value, boolean exclusive) {
+        int low = 0;
+        int high = sortedAbv.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedAbv[middle] < value || (exclusive && sortedAbv[middle] == value)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * A query compiled against these columns. The name filter is resolved once per distinct name,
+     * so the per-row check is an array lookup; the scan itself is safe to run on several slices at once.
+     */
+    final class Scan {
+
+        private final BeerQuery query;
+        private final int[] positions;
+        private final double minAbv;
+        private final double maxAbv;
+        private final boolean anyStyle;
+        private final int styleId;
+        private final boolean[] nameMatches;
+        private final boolean idCursor;
+        private final boolean rowCursor;
+        private final int afterId;
+        private final boolean descending;
+
+        private Scan(BeerQuery query, int[] positions) {
+            this.query = query;
+            this.positions = positions;
+            this.minAbv = query.getMinAbv() == null ? Double.NEGATIVE_INFINITY : query.getMinAbv();
+            this.maxAbv = query.getMaxAbv() == null ? Double.POSITIVE_INFINITY : query.getMaxAbv();
+            this.anyStyle = query.getStyleId() == null;
+            this.styleId = anyStyle ? 0 : query.getStyleId();
+
+            String needle = query.getFoldedName();
+            if (needle == null) {
+                nameMatches = null;
+            } else {
+                nameMatches = new boolean[names.length];
+                for (int code = 0; code < names.length; code++) {
+                    nameMatches[code] = names[code].contains(needle);
+                }
+            }
+
+            boolean hasCursor = query.getAfter() != null;
+            this.idCursor = hasCursor && query.getAfter().getSortField() == BeerSortField.ID;
+            this.rowCursor = hasCursor && !idCursor;
+            this.afterId = hasCursor ? query.getAfter().getId() : 0;
+            this.descending = query.isDescending();
+        }
+
+        int size() {
+            return positions == null ? rows.length : positions.length;
+        }
+
+        BeerQuery getQuery() {
+            return query;
+        }
+
+        List<Beer> select(int from, int to) {
+            return query.top(filter(from, to).stream());
+        }
+
+        private List<Beer> filter(int from, int to) {
+            List<Beer> result = new ArrayList<>();
+            for (int k = from; k < to; k++) {
+                int i = positions == null ? k : positions[k];
+                double value = abv[i];
+                if (value < minAbv || value > maxAbv) {
+                    continue;
+                }
+                if (!anyStyle && styleIds[i] != styleId) {
+                    continue;
+                }
+                if (nameMatches != null && !nameMatches[nameCodes[i]]) {
+                    continue;
+                }
+                if (idCursor && (descending ? ids[i] >= afterId : ids[i] <= afterId)) {
+                    continue;
+                }
+                Beer beer = rows[i];
+                if (rowCursor && !query.isAfterCursor(beer)) {
+                    continue;
+                }
+                result.add(beer);
+            }
+            return result;
+        }
+    }
+
+}
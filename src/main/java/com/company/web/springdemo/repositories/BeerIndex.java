@@ -0,0 +1,313 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.helpers.PersistentSortedMap;
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerCursor;
+import com.company.web.springdemo.models.BeerQuery;
+import com.company.web.springdemo.models.BeerSortField;
+import com.company.web.springdemo.models.Style;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Immutable, versioned snapshot of the in-memory catalogue. Every index is a {@link PersistentSortedMap},
+ * so {@link #apply} derives the next snapshot by copying only the tree paths it touches, O(log n) per
+ * changed row, and readers holding an older snapshot are never affected. The columnar copy used for
+ * scans is patched in the same step, with one linear merge per write, so no reader ever builds it.
+ */
+class BeerIndex {
+
+    private final long version;
+    private final PersistentSortedMap<Integer, Beer> byId;
+    private final PersistentSortedMap<String, PersistentSortedMap<Integer, Beer>> byName;
+    private final PersistentSortedMap<Integer, PersistentSortedMap<Integer, Beer>> byStyle;
+    private final PersistentSortedMap<Double, PersistentSortedMap<Integer, Beer>> byAbv;
+    private final Map<BeerSortField, PersistentSortedMap<Beer, Beer>> sortedViews;
+    private final TrigramIndex trigrams;
+    private final BeerColumns columns;
+
+    BeerIndex() {
+        version = 0;
+        byId = PersistentSortedMap.empty();
+        byName = PersistentSortedMap.empty();
+        byStyle = PersistentSortedMap.empty();
+        byAbv = PersistentSortedMap.empty();
+        sortedViews = new EnumMap<>(BeerSortField.class);
+        sortedViews.put(BeerSortField.NAME, PersistentSortedMap.empty(order(BeerSortField.NAME)));
+        sortedViews.put(BeerSortField.STYLE, PersistentSortedMap.empty(order(BeerSortField.STYLE)));
+        trigrams = new TrigramIndex();
+        columns = BeerColumns.EMPTY;
+    }
+
+    private BeerIndex(long version,
+                      PersistentSortedMap<Integer, Beer> byId,
+                      PersistentSortedMap<String, PersistentSortedMap<Integer, Beer>> byName,
+                      PersistentSortedMap<Integer, PersistentSortedMap<Integer, Beer>> byStyle,
+                      PersistentSortedMap<Double, PersistentSortedMap<Integer, Beer>> byAbv,
+                      Map<BeerSortField, PersistentSortedMap<Beer, Beer>> sortedViews,
+                      TrigramIndex trigrams,
+                      BeerColumns columns) {
+        this.version = version;
+        this.byId = byId;
+        this.byName = byName;
+        this.byStyle = byStyle;
+        this.byAbv = byAbv;
+        this.sortedViews = sortedViews;
+        this.trigrams = trigrams;
+        this.columns = columns;
+    }
+
+    BeerIndex apply(Collection<Beer> removed, Collection<Beer> added) {
+        PersistentSortedMap<Integer, Beer> nextById = byId;
+        PersistentSortedMap<String, PersistentSortedMap<Integer, Beer>> nextByName = byName;
+        PersistentSortedMap<Integer, PersistentSortedMap<Integer, Beer>> nextByStyle = byStyle;
+        PersistentSortedMap<Double, PersistentSortedMap<Integer, Beer>> nextByAbv = byAbv;
+        Map<BeerSortField, PersistentSortedMap<Beer, Beer>> nextSortedViews = new EnumMap<>(sortedViews);
+        for (Beer beer : removed) {
+            nextById = nextById.remove(beer.getId());
+            nextByName = without(nextByName, fold(beer.getName()), beer.getId());
+            nextByStyle = without(nextByStyle, beer.getStyle().getId(), beer.getId());
+            nextByAbv = without(nextByAbv, beer.getAbv(), beer.getId());
+            nextSortedViews.replaceAll((field, view) -> view.remove(beer));
+        }
+        for (Beer beer : added) {
+            nextById = nextById.put(beer.getId(), beer);
+            nextByName = with(nextByName, fold(beer.getName()), beer);
+            nextByStyle = with(nextByStyle, beer.getStyle().getId(), beer);
+            nextByAbv = with(nextByAbv, beer.getAbv(), beer);
+            nextSortedViews.replaceAll((field, view) -> view.put(beer, beer));
+        }
+        return new BeerIndex(version + 1, nextById, nextByName, nextByStyle, nextByAbv, nextSortedViews,
+                trigrams.apply(foldedNames(removed), foldedNames(added)), columns.apply(removed, added));
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    Collection<Beer> values() {
+        return byId.values();
+    }
+
+    Beer get(int id) {
+        return byId.get(id);
+    }
+
+    Beer get(String name) {
+        PersistentSortedMap<Integer, Beer> matches = byName.get(fold(name));
+        if (matches == null) {
+            return null;
+        }
+        return matches.values().stream()
+                .filter(beer -> beer.getName().equals(name))
+                .findFirst()
+                .orElse(null);
+    }
+
+    List<Beer> find(BeerQuery query) {
+        return find(query, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #find(BeerQuery)}, but when the chosen source isn't already in query order and
+     * holds at least {@code parallelThreshold} candidates, filtering and sorting of those candidates
+     * are split across {@code pool}.
+     */
+    List<Beer> find(BeerQuery query, ForkJoinPool pool, int parallelThreshold) {
+        String needle = query.getFoldedName();
+        Double minAbv = query.getMinAbv();
+        Double maxAbv = query.getMaxAbv();
+        Integer styleId = query.getStyleId();
+        BeerSortField sortField = query.getSortField();
+        boolean descending = query.isDescending();
+
+        // Drive the scan from the most selective index; if it already yields rows in the requested
+        // order we can stop as soon as the limit is reached, otherwise the candidates go through top-K selection.
+        int[] nameMatches = needle == null ? null : trigrams.candidates(needle);
+        PersistentSortedMap<Integer, Beer> stylePostings = styleId == null ? null : byStyle.get(styleId);
+        if (styleId != null && stylePostings == null) {
+            stylePostings = PersistentSortedMap.empty();
+        }
+        boolean fromTrigrams = nameMatches != null
+                && (stylePostings == null || nameMatches.length <= stylePostings.size());
+        Stream<Beer> candidates;
+        boolean ordered;
+        int estimate;
+        int[] abvPositions = null;
+        // An ordered source starts right after the cursor instead of filtering out every earlier row.
+        BeerCursor after = query.getAfter();
+        if (fromTrigrams) {
+            ordered = sortField == BeerSortField.ID;
+            candidates = beers(nameMatches, descending, ordered ? after : null);
+            estimate = nameMatches.length;
+        } else if (stylePostings != null) {
+            ordered = sortField == BeerSortField.ID;
+            candidates = ordered && after != null
+                    ? afterId(stylePostings, after.getId(), descending)
+                    : stylePostings.values(descending);
+            estimate = stylePostings.size();
+        } else if (minAbv != null || maxAbv != null) {
+            ordered = sortField == BeerSortField.ABV;
+            candidates = abvRange(minAbv, maxAbv, descending, ordered ? after : null);
+            if (!ordered) {
+                abvPositions = columns.abvRange(minAbv == null ? Double.NEGATIVE_INFINITY : minAbv,
+                        maxAbv == null ? Double.POSITIVE_INFINITY : maxAbv);
+            }
+            estimate = abvPositions == null ? 0 : abvPositions.length;
+        } else {
+            candidates = sortedView(sortField, descending, after);
+            ordered = true;
+            estimate = size();
+        }
+
+        if (ordered) {
+            return query.selectOrdered(candidates);
+        }
+        // Large candidate sets, and every abv range, are scanned over the columns, restricted to the
+        // positions of the candidates; the scan applies the remaining filters itself.
+        boolean parallel = pool != null && estimate >= parallelThreshold;
+        int[] positions;
+        if (fromTrigrams) {
+            if (!parallel) {
+                return query.select(candidates);
+            }
+            positions = columns.positions(nameMatches);
+        } else if (stylePostings != null) {
+            if (!parallel) {
+                return query.select(candidates);
+            }
+            positions = columns.positions(stylePostings.keys().mapToInt(Integer::intValue).toArray());
+        } else {
+            positions = abvPositions;
+        }
+        BeerColumns.Scan scan = columns.scan(query, positions);
+        if (parallel) {
+            return pool.invoke(new ParallelQueryTask(scan, pool.getParallelism()));
+        }
+        return scan.select(0, scan.size());
+    }
+
+    /**
+     * Rows in {@code sortField} order, starting after {@code after} when it is set.
+     */
+    private Stream<Beer> sortedView(BeerSortField sortField, boolean descending, BeerCursor after) {
+        switch (sortField) {
+            case ID:
+                return after == null ? byId.values(descending) : afterId(byId, after.getId(), descending);
+            case ABV:
+                return abvRange(null, null, descending, after);
+            default:
+                PersistentSortedMap<Beer, Beer> view = sortedViews.get(sortField);
+                if (after == null) {
+                    return view.values(descending);
+                }
+                // The bound is inclusive, so the cursor's own row may come back; the query's cursor check drops it.
+                Beer bound = probe(after);
+                return descending ? view.values(null, bound, true) : view.values(bound, null, false);
+        }
+    }
+
+    private Stream<Beer> abvRange(Double minAbv, Double maxAbv, boolean descending, BeerCursor after) {
+        double from = minAbv == null ? Double.NEGATIVE_INFINITY : minAbv;
+        double to = maxAbv == null ? Double.POSITIVE_INFINITY : maxAbv;
+        Stream<Beer> tied = Stream.empty();
+        if (after != null) {
+            // Rows with the cursor's own abv continue after its id; the range then resumes at the next abv.
+            double abv = after.getAbv();
+            PersistentSortedMap<Integer, Beer> postings = from <= abv && abv <= to ? byAbv.get(abv) : null;
+            if (postings != null) {
+                tied = afterId(postings, after.getId(), descending);
+            }
+            if (descending) {
+                to = Math.min(to, Math.nextDown(abv));
+            } else {
+                from = Math.max(from, Math.nextUp(abv));
+            }
+        }
+        if (from > to) {
+            return tied;
+        }
+        return Stream.concat(tied, byAbv.values(from, to, descending)
+                .flatMap(postings -> postings.values(descending)));
+    }
+
+    // ids is sorted ascending; the rows are listed in the requested direction, after the cursor's id if set.
+    private Stream<Beer> beers(int[] ids, boolean descending, BeerCursor after) {
+        IntStream positions;
+        if (after == null) {
+            positions = IntStream.range(0, ids.length);
+        } else {
+            int found = Arrays.binarySearch(ids, after.getId());
+            int smaller = found >= 0 ? found : -found - 1;
+            positions = descending ? IntStream.range(ids.length - smaller, ids.length)
+                    : IntStream.range(found >= 0 ? found + 1 : smaller, ids.length);
+        }
+        if (descending) {
+            positions = positions.map(position -> ids.length - 1 - position);
+        }
+        return positions.mapToObj(position -> byId.get(ids[position]));
+    }
+
+    private static Stream<Beer> afterId(PersistentSortedMap<Integer, Beer> postings, int id, boolean descending) {
+        if (descending) {
+            return id == Integer.MIN_VALUE ? Stream.empty() : postings.values(null, id - 1, true);
+        }
+        return id == Integer.MAX_VALUE ? Stream.empty() : postings.values(id + 1, null, false);
+    }
+
+    // A row that sorts exactly where the cursor points, for seeking the name and style views.
+    private static Beer probe(BeerCursor after) {
+        Beer probe = new Beer(after.getId(), after.getKey(), 0);
+        if (after.getSortField() == BeerSortField.STYLE) {
+            probe.setStyle(new Style(0, after.getKey()));
+        }
+        return probe;
+    }
+
+    private static <K> PersistentSortedMap<K, PersistentSortedMap<Integer, Beer>> with(
+            PersistentSortedMap<K, PersistentSortedMap<Integer, Beer>> index, K key, Beer beer) {
+        PersistentSortedMap<Integer, Beer> postings = index.get(key);
+        if (postings == null) {
+            postings = PersistentSortedMap.empty();
+        }
+        return index.put(key, postings.put(beer.getId(), beer));
+    }
+
+    private static <K> PersistentSortedMap<K, PersistentSortedMap<Integer, Beer>> without(
+            PersistentSortedMap<K, PersistentSortedMap<Integer, Beer>> index, K key, int id) {
+        PersistentSortedMap<Integer, Beer> postings = index.get(key);
+        if (postings == null) {
+            return index;
+        }
+        PersistentSortedMap<Integer, Beer> remaining = postings.remove(id);
+        return remaining.isEmpty() ? index.remove(key) : index.put(key, remaining);
+    }
+
+    private static Map<Integer, String> foldedNames(Collection<Beer> beers) {
+        Map<Integer, String> names = new HashMap<>();
+        beers.forEach(beer -> names.put(beer.getId(), fold(beer.getName())));
+        return names;
+    }
+
+    private static Comparator<Beer> order(BeerSortField sortField) {
+        return sortField.comparator().thenComparingInt(Beer::getId);
+    }
+
+    static String fold(String value) {
+        return value.toLowerCase();
+    }
+
+}
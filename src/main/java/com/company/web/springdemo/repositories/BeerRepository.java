@@ -1,21 +1,30 @@
 package com.company.web.springdemo.repositories;
 
 import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerQuery;
 import com.company.web.springdemo.models.User;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface BeerRepository {
 
-    List<Beer> get(String name, Double minAbv, Double maxAbv, Integer styleId, String sortBy, String sortOrder);
+    List<Beer> get(BeerQuery query);
+
+    void stream(BeerQuery query, Consumer<Beer> action);
 
     Beer get(int id);
 
     Beer get(String name);
 
+    List<String> getExistingNames(Collection<String> names);
+
     void create(Beer beer);
 
+    void create(List<Beer> beers);
+
     void update(Beer beer);
 
     void delete(int id);
@@ -2,149 +2,442 @@ package com.company.web.springdemo.repositories;
 
 import com.company.web.springdemo.exceptions.EntityNotFoundException;
 import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerQuery;
 import com.company.web.springdemo.models.User;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Repository;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 //@Repository
 public class BeerRepositoryImpl implements BeerRepository {
 
-    private final List<Beer> beers;
+    private static final Logger logger = LoggerFactory.getLogger(BeerRepositoryImpl.class);
 
+    private static final String SNAPSHOT_FILE = "beers.snapshot";
+    private static final String LOG_DIRECTORY = "wal";
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_DELETE = 2;
+
+    // Readers take whatever snapshot is current and never block. Writers only hold writeLock while they
+    // derive the next index from the staged one and append its log records, then wait for the sync
+    // outside it, so concurrent writes share one. Each index is published from the log's completion
+    // callback, which runs in append order. A write whose sync fails is never published, and neither is
+    // any write staged on top of it, so neither readers nor the next snapshot can see it.
+    private final AtomicReference<BeerIndex> beers;
+    private final AtomicInteger lastId;
+    private final Object writeLock = new Object();
+    // Guarded by writeLock: the newest index, including writes that aren't durable yet, the number of
+    // writes appended so far, the last of them that may not be published, and the last one's outcome.
+    private BeerIndex staged;
+    private long appended;
+    private long discardedThrough;
+    private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+
+    // Large scans run here rather than on the common pool, so they can't take over the request threads.
+    private final ForkJoinPool queryPool;
+    private final int parallelThreshold;
+
+    // With beers.persistence.directory set, every write is logged before it is acknowledged and the
+    // catalogue is snapshotted in the background; otherwise all three stay null and nothing is persisted.
+    private final WriteAheadLog log;
+    private final Path snapshotPath;
+    private final ScheduledExecutorService snapshotter;
+    private final Object snapshotLock = new Object();
+
+    private final StyleRepository styleRepository;
     private final UserRepository userRepository;
 
     //@Autowired
-    public BeerRepositoryImpl(StyleRepository styleRepository, UserRepository userRepository) {
+    public BeerRepositoryImpl(StyleRepository styleRepository, UserRepository userRepository, Environment env) {
+        this.styleRepository = styleRepository;
         this.userRepository = userRepository;
-        beers = new ArrayList<>();
-        Beer beer = new Beer(1, "Glarus English Ale", 4.6);
-        beer.setStyle(styleRepository.get(1));
-        beers.add(beer);
+        int parallelism = env.getProperty("beers.query.parallelism", Integer.class,
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        this.parallelThreshold = env.getProperty("beers.query.parallel-threshold", Integer.class, 200_000);
+        this.queryPool = parallelism > 1 ? new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("beer-query-" + thread.getPoolIndex());
+            return thread;
+        }, null, false) : null;
 
-        beer = new Beer(2, "Rhombus Porter", 5.0);
-        beer.setStyle(styleRepository.get(2));
-        beers.add(beer);
+        String directory = env.getProperty("beers.persistence.directory", "");
+        if (directory.isBlank()) {
+            log = null;
+            snapshotPath = null;
+            snapshotter = null;
+            beers = new AtomicReference<>(new BeerIndex().apply(List.of(), seed()));
+            lastId = new AtomicInteger(3);
+            staged = beers.get();
+            return;
+        }
 
-        beer = new Beer(3, "Opasen Char", 6.6);
-        beer.setStyle(styleRepository.get(3));
-        beers.add(beer);
+        Path root = Path.of(directory);
+        snapshotPath = root.resolve(SNAPSHOT_FILE);
+        long segmentBytes = env.getProperty("beers.persistence.segment-bytes", Long.class, 64L * 1024 * 1024);
+        long snapshotInterval = env.getProperty("beers.persistence.snapshot-interval-seconds", Long.class, 300L);
+        boolean fresh;
+        try {
+            RecoveredState state = recover(root);
+            fresh = state.fresh;
+            beers = new AtomicReference<>(new BeerIndex().apply(List.of(),
+                    state.fresh ? seed() : new ArrayList<>(state.beers.values())));
+            lastId = new AtomicInteger(state.fresh ? 3 : state.lastId);
+            staged = beers.get();
+            log = new WriteAheadLog(root.resolve(LOG_DIRECTORY), segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "beer-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (UncheckedIOException e) {
+                // The log segments are only deleted after a successful snapshot, so nothing is lost,
+                // but the log keeps growing until a snapshot succeeds again.
+                logger.error("Could not snapshot the beer catalogue to {}; the write-ahead log is not trimmed.",
+                        snapshotPath, e);
+            }
+        }, snapshotInterval, snapshotInterval, TimeUnit.SECONDS);
+
+        if (fresh) {
+            // The seed rows were never logged, so persist them before the first write can land.
+            snapshot();
+        }
+    }
+
+    @Override
+    public List<Beer> get(BeerQuery query) {
+        return beers.get().find(query, queryPool, parallelThreshold);
     }
 
     @Override
-    public List<Beer> get(String name, Double minAbv, Double maxAbv, Integer styleId, String sortBy, String sortOrder) {
-        List<Beer> result = beers;
-        result = filterByName(result, name);
-        result = filterByAbv(result, minAbv, maxAbv);
-        result = filterByStyle(result, styleId);
-        result = sortBy(result, sortBy);
-        result = order(result, sortOrder);
-        return result;
+    public void stream(BeerQuery query, Consumer<Beer> action) {
+        get(query).forEach(action);
     }
 
     @Override
     public Beer get(int id) {
-        return beers.stream()
-                .filter(beer -> beer.getId() == id)
-                .findFirst()
-                .orElseThrow(() -> new EntityNotFoundException("Beer", id));
+        Beer beer = beers.get().get(id);
+        if (beer == null) {
+            throw new EntityNotFoundException("Beer", id);
+        }
+        return beer;
     }
 
     @Override
     public Beer get(String name) {
-        return beers.stream()
-                .filter(beer -> beer.getName().equals(name))
-                .findFirst()
-                .orElseThrow(() -> new EntityNotFoundException("Beer", "name", name));
+        Beer beer = beers.get().get(name);
+        if (beer == null) {
+            throw new EntityNotFoundException("Beer", "name", name);
+        }
+        return beer;
+    }
+
+    @Override
+    public List<String> getExistingNames(Collection<String> names) {
+        BeerIndex snapshot = beers.get();
+        return names.stream()
+                .filter(name -> snapshot.get(name) != null)
+                .collect(Collectors.toList());
     }
 
     @Override
     public void create(Beer beer) {
-        int nextId = beers.size() + 1;
-        beer.setId(nextId);
-        beers.add(beer);
+        create(List.of(beer));
+    }
+
+    @Override
+    public void create(List<Beer> beers) {
+        List<Beer> added = new ArrayList<>();
+        for (Beer beer : beers) {
+            beer.setId(lastId.incrementAndGet());
+            added.add(copy(beer));
+        }
+        List<byte[]> records = new ArrayList<>();
+        added.forEach(beer -> records.add(putRecord(beer)));
+        CompletableFuture<Void> published;
+        synchronized (writeLock) {
+            published = stage(staged.apply(List.of(), added), records);
+        }
+        await(published);
     }
 
     @Override
     public void update(Beer beer) {
-        Beer beerToUpdate = get(beer.getId());
-        beerToUpdate.setName(beer.getName());
-        beerToUpdate.setAbv(beer.getAbv());
-        beerToUpdate.setStyle(beer.getStyle());
+        CompletableFuture<Void> published;
+        synchronized (writeLock) {
+            Beer beerToUpdate = stagedBeer(beer.getId());
+            Beer updated = copy(beerToUpdate);
+            updated.setName(beer.getName());
+            updated.setAbv(beer.getAbv());
+            updated.setStyle(beer.getStyle());
+            published = stage(staged.apply(List.of(beerToUpdate), List.of(updated)),
+                    List.of(putRecord(updated)));
+        }
+        await(published);
     }
 
     @Override
     public void delete(int id) {
-        Beer beerToDelete = get(id);
-        beers.remove(beerToDelete);
+        CompletableFuture<Void> published;
+        synchronized (writeLock) {
+            Beer beerToDelete = stagedBeer(id);
+            published = stage(staged.apply(List.of(beerToDelete), List.of()), List.of(deleteRecord(id)));
+        }
+        await(published);
     }
 
-    private static List<Beer> filterByName(List<Beer> beers, String name) {
-        if (name != null && !name.isEmpty()) {
-            beers = beers.stream()
-                    .filter(beer -> containsIgnoreCase(beer.getName(), name))
-                    .collect(Collectors.toList());
+    /**
+     * Writes the current catalogue to the snapshot file and drops the log segments it covers. The
+     * snapshot is written from an immutable index, so writers are only held up while the log rotates.
+     * Writes appended before the rotation may sit in the segments about to be dropped, so the snapshot
+     * waits until they are published or discarded.
+     */
+    public void snapshot() {
+        if (log == null) {
+            return;
+        }
+        synchronized (snapshotLock) {
+            CompletableFuture<Void> rotated;
+            int last;
+            long firstSegment;
+            synchronized (writeLock) {
+                rotated = lastWrite;
+                last = lastId.get();
+                try {
+                    firstSegment = log.rotate();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            // Its outcome doesn't matter here, only that it has been settled.
+            rotated.handle((ignored, failure) -> null).join();
+            BeerIndex current = beers.get();
+
+            SnapshotFile.write(snapshotPath, out -> {
+                out.writeLong(firstSegment);
+                out.writeInt(last);
+                out.writeInt(current.size());
+                for (Beer beer : current.values()) {
+                    writeBeer(out, beer);
+                }
+            });
+            try {
+                log.deleteBefore(firstSegment);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
-        return beers;
     }
 
-    private static List<Beer> filterByAbv(List<Beer> beers, Double minAbv, Double maxAbv) {
-        if (minAbv != null) {
-            beers = beers.stream()
-                    .filter(beer -> beer.getAbv() >= minAbv)
-                    .collect(Collectors.toList());
+    @PreDestroy
+    public void shutdown() {
+        if (queryPool != null) {
+            queryPool.shutdown();
+        }
+        if (log != null) {
+            snapshotter.shutdown();
+            snapshot();
+            try {
+                log.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
+    }
+
+    private RecoveredState recover(Path root) throws IOException {
+        RecoveredState state = new RecoveredState();
+        SnapshotFile.read(root.resolve(SNAPSHOT_FILE), in -> {
+            state.fromSegment = in.readLong();
+            state.lastId = in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Beer beer = readBeer(in);
+                state.beers.put(beer.getId(), beer);
+            }
+            state.fresh = false;
+            return state;
+        });
+
+        // Records are whole rows applied in order, so replaying one the snapshot already reflects is harmless.
+        WriteAheadLog.replay(root.resolve(LOG_DIRECTORY), state.fromSegment, record -> {
+            state.fresh = false;
+            if (record.readByte() == RECORD_DELETE) {
+                state.beers.remove(record.readInt());
+                return;
+            }
+            Beer beer = readBeer(record);
+            state.beers.put(beer.getId(), beer);
+            state.lastId = Math.max(state.lastId, beer.getId());
+        });
+        return state;
+    }
+
+    private List<Beer> seed() {
+        List<Beer> seed = new ArrayList<>();
+        Beer beer = new Beer(1, "Glarus English Ale", 4.6);
+        beer.setStyle(styleRepository.get(1));
+        seed.add(beer);
+
+        beer = new Beer(2, "Rhombus Porter", 5.0);
+        beer.setStyle(styleRepository.get(2));
+        seed.add(beer);
+
+        beer = new Beer(3, "Opasen Char", 6.6);
+        beer.setStyle(styleRepository.get(3));
+        seed.add(beer);
+        return seed;
+    }
+
+    private CompletableFuture<Void> log(List<byte[]> records) {
+        return log == null ? CompletableFuture.completedFuture(null) : log.append(records);
+    }
 
-        if (maxAbv != null) {
-            beers = beers.stream()
-                    .filter(beer -> beer.getAbv() <= maxAbv)
-                    .collect(Collectors.toList());
+    private static void await(CompletableFuture<Void> durable) {
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
+    }
 
-        return beers;
+    private static byte[] putRecord(Beer beer) {
+        return record(out -> {
+            out.writeByte(RECORD_PUT);
+            writeBeer(out, beer);
+        });
     }
 
-    private static List<Beer> filterByStyle(List<Beer> beers, Integer styleId) {
-        if (styleId != null) {
-            beers = beers.stream()
-                    .filter(beer -> beer.getStyle().getId() == styleId)
-                    .collect(Collectors.toList());
+    private static byte[] deleteRecord(int id) {
+        return record(out -> {
+            out.writeByte(RECORD_DELETE);
+            out.writeInt(id);
+        });
+    }
+
+    private static byte[] record(SnapshotFile.Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return beers;
+        return bytes.toByteArray();
     }
 
-    private static List<Beer> sortBy(List<Beer> beers, String sortBy) {
-        if (sortBy != null && !sortBy.isEmpty()) {
-            switch (sortBy.toLowerCase()) {
-                case "name":
-                    beers.sort(Comparator.comparing(Beer::getName));
-                    break;
-                case "abv":
-                    beers.sort(Comparator.comparing(Beer::getAbv));
-                case "style":
-                    beers.sort(Comparator.comparing(beer -> beer.getStyle().getName()));
-                    break;
-            }
+    private static void writeBeer(DataOutputStream out, Beer beer) throws IOException {
+        out.writeInt(beer.getId());
+        out.writeUTF(beer.getName());
+        out.writeDouble(beer.getAbv());
+        out.writeInt(beer.getStyle().getId());
+        out.writeInt(beer.getCreatedBy() == null ? 0 : beer.getCreatedBy().getId());
+    }
+
+    private Beer readBeer(DataInputStream in) throws IOException {
+        Beer beer = new Beer(in.readInt(), in.readUTF(), in.readDouble());
+        beer.setStyle(styleRepository.get(in.readInt()));
+        int createdBy = in.readInt();
+        if (createdBy != 0) {
+            beer.setCreatedBy(userRepository.getById(createdBy));
         }
-        return beers;
+        return beer;
+    }
+
+    /**
+     * Makes {@code next} the index later writes derive from and appends {@code records}, the change that
+     * produced it. Must be called with writeLock held. The returned future completes once {@code next}
+     * is published, or fails if it never will be.
+     */
+    private CompletableFuture<Void> stage(BeerIndex next, List<byte[]> records) {
+        long sequence = ++appended;
+        staged = next;
+        lastWrite = log(records).handle((ignored, failure) -> publish(sequence, next, failure));
+        return lastWrite;
     }
 
-    private static List<Beer> order(List<Beer> beers, String order) {
-        if (order != null && !order.isEmpty()) {
-            if (order.equals("desc")) {
-                Collections.reverse(beers);
+    // Runs in append order: on the flusher thread, or on the writer's if the sync already finished.
+    private Void publish(long sequence, BeerIndex next, Throwable failure) {
+        synchronized (writeLock) {
+            if (sequence > discardedThrough) {
+                if (failure == null) {
+                    beers.set(next);
+                    return null;
+                }
+                // Every write appended since was derived from this one, so none of them can be published
+                // either; later writes start again from the last published index.
+                discardedThrough = appended;
+                staged = beers.get();
             }
         }
-        return beers;
+        if (failure == null) {
+            throw new UncheckedIOException(
+                    new IOException("The write was discarded because an earlier write to the log failed."));
+        }
+        throw failure instanceof CompletionException ? (CompletionException) failure
+                : new CompletionException(failure);
     }
 
-    private static boolean containsIgnoreCase(String value, String sequence) {
-        return value.toLowerCase().contains(sequence.toLowerCase());
+    private Beer stagedBeer(int id) {
+        Beer beer = staged.get(id);
+        if (beer == null) {
+            throw new EntityNotFoundException("Beer", id);
+        }
+        return beer;
+    }
+
+    // Lets tests check that concurrent writers share syncs.
+    WriteAheadLog writeAheadLog() {
+        return log;
+    }
+
+    private static Beer copy(Beer beer) {
+        Beer copy = new Beer(beer.getId(), beer.getName(), beer.getAbv());
+        copy.setStyle(beer.getStyle());
+        copy.setCreatedBy(beer.getCreatedBy());
+        return copy;
+    }
+
+    private static final class RecoveredState {
+
+        private final Map<Integer, Beer> beers = new HashMap<>();
+        private long fromSegment = 1;
+        private int lastId;
+        private boolean fresh = true;
     }
 
 }
@@ -0,0 +1,514 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.exceptions.EntityNotFoundException;
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerQuery;
+import com.company.web.springdemo.models.BeerSortField;
+import com.company.web.springdemo.models.Style;
+import com.company.web.springdemo.models.User;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Beer store for deployments without a database server. Records live in fixed-size slots of a
+ * memory-mapped data file, addressed directly by id, so startup only maps the file and builds a
+ * name-to-id index, and reads decode straight from it. Updates and deletes are appended to a log and
+ * kept in a small overlay until the background compactor folds them into their slots and truncates the
+ * log.
+ * <p>
+ * The name index lives on the heap and is rebuilt at startup with one pass that reads only the status
+ * and name of each slot. Persisting it would mean a second on-disk structure that has to be kept
+ * consistent with both the slots and the log across crashes. The file is one mapping addressed with
+ * int offsets, which caps the store at {@link #MAX_CAPACITY} ids; creates beyond that fail up front.
+ */
+//@Repository
+//@PropertySource("classpath:application.properties")
+public class BeerRepositoryMappedFileImpl implements BeerRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(BeerRepositoryMappedFileImpl.class);
+
+    private static final int MAGIC = 0x42454552;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_LAST_ID = 8;
+
+    private static final int SLOT_SIZE = 128;
+    private static final int SLOT_STATUS = 0;
+    private static final int SLOT_ID = 1;
+    private static final int SLOT_ABV = 5;
+    private static final int SLOT_STYLE = 13;
+    private static final int SLOT_CREATED_BY = 17;
+    private static final int SLOT_NAME_LENGTH = 21;
+    private static final int SLOT_NAME = 23;
+    private static final int MAX_NAME_BYTES = SLOT_SIZE - SLOT_NAME;
+
+    private static final byte STATUS_LIVE = 1;
+    private static final byte STATUS_DELETED = 2;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // A single MappedByteBuffer is indexed by int, so every slot must end below 2 GiB.
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE;
+
+    // Slots decoded per read-lock hold while streaming, so a slow consumer can't hold off writers.
+    private static final int STREAM_BATCH_SIZE = 1024;
+
+    private final StyleRepository styleRepository;
+    private final UserRepository userRepository;
+    private final FileChannel dataChannel;
+    private final FileChannel logChannel;
+    private final int compactionThreshold;
+    private final ScheduledExecutorService compactor;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private MappedByteBuffer data;
+    private int capacity;
+    private int lastId;
+
+    // Slots written to the log but not yet copied into the data file; they shadow the mapped slot.
+    private final Map<Integer, ByteBuffer> pending = new HashMap<>();
+
+    // Ids of live beers by exact name, so name lookups don't scan the slots.
+    private final Map<String, Integer> idsByName = new HashMap<>();
+
+    //@Autowired
+    public BeerRepositoryMappedFileImpl(StyleRepository styleRepository, UserRepository userRepository,
+                                        Environment env) {
+        this.styleRepository = styleRepository;
+        this.userRepository = userRepository;
+        this.compactionThreshold = env.getProperty("beers.store.compaction-threshold", Integer.class, 10_000);
+        long compactionInterval = env.getProperty("beers.store.compaction-interval-seconds", Long.class, 60L);
+
+        Path directory = Path.of(env.getProperty("beers.store.directory", "data"));
+        try {
+            Files.createDirectories(directory);
+            dataChannel = FileChannel.open(directory.resolve("beers.dat"),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+            logChannel = FileChannel.open(directory.resolve("beers.log"),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+            openData();
+            replayLog();
+            indexNames();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "beer-store-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+            } catch (UncheckedIOException e) {
+                // The log still holds every change, so the next run simply tries again.
+                logger.error("Could not compact the beer store; the change log is kept until the next run.", e);
+            }
+        }, compactionInterval, compactionInterval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public List<Beer> get(BeerQuery query) {
+        List<Beer> matching = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            scan(query, 1, lastId, false, new References(), matching);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return query.top(matching.stream());
+    }
+
+    /**
+     * Slots are addressed by id, so id order is a walk over them in batches and no more than a batch is
+     * held at once; rows written during the walk may or may not be seen. Any other order needs every
+     * match before the first row can be emitted.
+     */
+    @Override
+    public void stream(BeerQuery query, Consumer<Beer> action) {
+        if (query.getSortField() != BeerSortField.ID) {
+            get(query).forEach(action);
+            return;
+        }
+
+        int remaining = query.getLimit() == null ? Integer.MAX_VALUE : query.getLimit();
+        boolean descending = query.isDescending();
+        References references = new References();
+        int low = 1;
+        int high;
+        lock.readLock().lock();
+        try {
+            high = lastId;
+        } finally {
+            lock.readLock().unlock();
+        }
+        while (remaining > 0 && low <= high) {
+            int from;
+            int to;
+            if (descending) {
+                to = high;
+                from = Math.max(low, high - STREAM_BATCH_SIZE + 1);
+                high = from - 1;
+            } else {
+                from = low;
+                to = Math.min(high, low + STREAM_BATCH_SIZE - 1);
+                low = to + 1;
+            }
+
+            List<Beer> batch = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                scan(query, from, to, descending, references, batch);
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (Beer beer : batch) {
+                if (remaining == 0) {
+                    break;
+                }
+                remaining--;
+                action.accept(beer);
+            }
+        }
+    }
+
+    @Override
+    public Beer get(int id) {
+        lock.readLock().lock();
+        try {
+            if (id < 1 || id > lastId || buffer(id).get(base(id) + SLOT_STATUS) != STATUS_LIVE) {
+                throw new EntityNotFoundException("Beer", id);
+            }
+            return decode(buffer(id), base(id), new References());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Beer get(String name) {
+        lock.readLock().lock();
+        try {
+            Integer id = idsByName.get(name);
+            if (id != null) {
+                return decode(buffer(id), base(id), new References());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        throw new EntityNotFoundException("Beer", "name", name);
+    }
+
+    @Override
+    public List<String> getExistingNames(Collection<String> names) {
+        List<String> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (String name : new LinkedHashSet<>(names)) {
+                if (idsByName.containsKey(name)) {
+                    result.add(name);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public void create(Beer beer) {
+        create(List.of(beer));
+    }
+
+    @Override
+    public void create(List<Beer> beers) {
+        beers.forEach(beer -> checkName(beer.getName()));
+        lock.writeLock().lock();
+        try {
+            if (beers.size() > MAX_CAPACITY - lastId) {
+                throw new IllegalStateException("The beer store is full; it holds at most "
+                        + MAX_CAPACITY + " ids.");
+            }
+            for (Beer beer : beers) {
+                int id = lastId + 1;
+                ensureCapacity(id);
+                beer.setId(id);
+                encode(beer, STATUS_LIVE, data, base(id));
+                idsByName.put(beer.getName(), id);
+                lastId = id;
+            }
+            data.putInt(HEADER_LAST_ID, lastId);
+            data.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void update(Beer beer) {
+        checkName(beer.getName());
+        lock.writeLock().lock();
+        try {
+            Beer updated = get(beer.getId());
+            String previousName = updated.getName();
+            updated.setName(beer.getName());
+            updated.setAbv(beer.getAbv());
+            updated.setStyle(beer.getStyle());
+            append(updated, STATUS_LIVE);
+            idsByName.remove(previousName, updated.getId());
+            idsByName.put(updated.getName(), updated.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(int id) {
+        lock.writeLock().lock();
+        try {
+            Beer deleted = get(id);
+            append(deleted, STATUS_DELETED);
+            idsByName.remove(deleted.getName(), id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies every logged slot into the data file, flushes it and starts a new, empty log.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            pending.forEach((id, slot) -> data.put(slotOffset(id), slot.array()));
+            data.force();
+            logChannel.truncate(0);
+            logChannel.force(true);
+            pending.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        compactor.shutdown();
+        compact();
+        try {
+            logChannel.close();
+            dataChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void openData() throws IOException {
+        long size = dataChannel.size();
+        if (size == 0) {
+            map(INITIAL_CAPACITY);
+            data.putInt(HEADER_MAGIC, MAGIC);
+            data.putInt(HEADER_VERSION, FORMAT_VERSION);
+            data.putInt(HEADER_LAST_ID, 0);
+            data.force();
+        } else {
+            map((int) ((size - HEADER_SIZE) / SLOT_SIZE));
+            if (data.getInt(HEADER_MAGIC) != MAGIC || data.getInt(HEADER_VERSION) != FORMAT_VERSION) {
+                throw new IllegalStateException("The beer data file has an unknown format.");
+            }
+        }
+        lastId = data.getInt(HEADER_LAST_ID);
+    }
+
+    private void replayLog() throws IOException {
+        long complete = logChannel.size() - logChannel.size() % SLOT_SIZE;
+        for (long position = 0; position < complete; position += SLOT_SIZE) {
+            ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+            while (slot.hasRemaining()) {
+                logChannel.read(slot, position + slot.position());
+            }
+            pending.put(slot.getInt(SLOT_ID), slot);
+        }
+        // A torn trailing record belongs to a write that never returned, so it is dropped.
+        logChannel.truncate(complete);
+        logChannel.position(complete);
+    }
+
+    private void indexNames() {
+        for (int id = 1; id <= lastId; id++) {
+            ByteBuffer buffer = buffer(id);
+            int base = base(id);
+            if (buffer.get(base + SLOT_STATUS) == STATUS_LIVE) {
+                idsByName.putIfAbsent(decodeName(buffer, base), id);
+            }
+        }
+    }
+
+    /**
+     * Adds the live rows with ids in {@code [from, to]} that match {@code query} to {@code matching}.
+     * Callers hold the read lock.
+     */
+    private void scan(BeerQuery query, int from, int to, boolean descending, References references,
+                      List<Beer> matching) {
+        double minAbv = query.getMinAbv() == null ? Double.NEGATIVE_INFINITY : query.getMinAbv();
+        double maxAbv = query.getMaxAbv() == null ? Double.POSITIVE_INFINITY : query.getMaxAbv();
+        Integer styleId = query.getStyleId();
+        int first = Math.max(from, 1);
+        int last = Math.min(to, lastId);
+        for (int i = first; i <= last; i++) {
+            int id = descending ? first + last - i : i;
+            ByteBuffer buffer = buffer(id);
+            int base = base(id);
+            if (buffer.get(base + SLOT_STATUS) != STATUS_LIVE) {
+                continue;
+            }
+            // Check the primitive columns in place so rejected rows are never decoded.
+            double abv = buffer.getDouble(base + SLOT_ABV);
+            if (abv < minAbv || abv > maxAbv) {
+                continue;
+            }
+            if (styleId != null && buffer.getInt(base + SLOT_STYLE) != styleId) {
+                continue;
+            }
+            Beer beer = decode(buffer, base, references);
+            if (query.matches(beer)) {
+                matching.add(beer);
+            }
+        }
+    }
+
+    private void append(Beer beer, byte status) {
+        ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+        encode(beer, status, slot, 0);
+        try {
+            ByteBuffer record = slot.duplicate();
+            while (record.hasRemaining()) {
+                logChannel.write(record);
+            }
+            logChannel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        pending.put(beer.getId(), slot);
+        if (pending.size() >= compactionThreshold) {
+            compact();
+        }
+    }
+
+    private void ensureCapacity(int id) {
+        if (id <= capacity) {
+            return;
+        }
+        data.force();
+        try {
+            map(Math.min(MAX_CAPACITY, Math.max(capacity * 2, id)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void map(int slots) throws IOException {
+        data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+        capacity = slots;
+    }
+
+    private ByteBuffer buffer(int id) {
+        ByteBuffer slot = pending.get(id);
+        return slot == null ? data : slot;
+    }
+
+    private int base(int id) {
+        return pending.containsKey(id) ? 0 : slotOffset(id);
+    }
+
+    private static int slotOffset(int id) {
+        return HEADER_SIZE + (id - 1) * SLOT_SIZE;
+    }
+
+    private static void encode(Beer beer, byte status, ByteBuffer buffer, int base) {
+        byte[] name = beer.getName().getBytes(StandardCharsets.UTF_8);
+        buffer.put(base + SLOT_STATUS, status);
+        buffer.putInt(base + SLOT_ID, beer.getId());
+        buffer.putDouble(base + SLOT_ABV, beer.getAbv());
+        buffer.putInt(base + SLOT_STYLE, beer.getStyle().getId());
+        buffer.putInt(base + SLOT_CREATED_BY, beer.getCreatedBy() == null ? 0 : beer.getCreatedBy().getId());
+        buffer.putShort(base + SLOT_NAME_LENGTH, (short) name.length);
+        buffer.put(base + SLOT_NAME, name);
+        buffer.put(base + SLOT_NAME + name.length, new byte[MAX_NAME_BYTES - name.length]);
+    }
+
+    private static Beer decode(ByteBuffer buffer, int base, References references) {
+        Beer beer = new Beer(buffer.getInt(base + SLOT_ID), decodeName(buffer, base),
+                buffer.getDouble(base + SLOT_ABV));
+        beer.setStyle(references.style(buffer.getInt(base + SLOT_STYLE)));
+        int createdBy = buffer.getInt(base + SLOT_CREATED_BY);
+        if (createdBy != 0) {
+            beer.setCreatedBy(references.user(createdBy));
+        }
+        return beer;
+    }
+
+    private static String decodeName(ByteBuffer buffer, int base) {
+        byte[] name = new byte[buffer.getShort(base + SLOT_NAME_LENGTH)];
+        buffer.get(base + SLOT_NAME, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private static void checkName(String name) {
+        if (name.getBytes(StandardCharsets.UTF_8).length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Beer name is longer than " + MAX_NAME_BYTES + " bytes.");
+        }
+    }
+
+    /**
+     * Styles and users resolved while decoding one request's rows, so each is looked up once rather
+     * than once per row.
+     */
+    private final class References {
+
+        private final Map<Integer, Style> styles = new HashMap<>();
+        private final Map<Integer, User> users = new HashMap<>();
+
+        private Style style(int id) {
+            return styles.computeIfAbsent(id, styleRepository::get);
+        }
+
+        private User user(int id) {
+            return users.computeIfAbsent(id, userRepository::getById);
+        }
+    }
+
+}
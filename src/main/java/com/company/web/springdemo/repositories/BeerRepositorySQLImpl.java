@@ -1,7 +1,12 @@
 package com.company.web.springdemo.repositories;
 
+import com.company.web.springdemo.database.ConnectionPool;
 import com.company.web.springdemo.exceptions.EntityNotFoundException;
 import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerQuery;
+import io.micrometer.core.annotation.Counted;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.env.Environment;
@@ -9,59 +14,51 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Repository
+@Timed("beers.repository")
+@Counted(value = "beers.repository.failures", recordFailuresOnly = true)
 @PropertySource("classpath:application.properties")
 public class BeerRepositorySQLImpl implements BeerRepository {
 
-    private final String dbUrl, dbUsername, dbPassword;
-    private final StyleRepository styleRepository;
-    private final UserRepository userRepository;
+    private static final int BATCH_SIZE = 500;
+
+    private final QueryMeters meters;
+    private final int streamFetchSize;
 
     @Autowired
-    public BeerRepositorySQLImpl(Environment env, StyleRepository styleRepository, UserRepository userRepository) {
-        dbUrl = env.getProperty("database.url");
-        dbUsername = env.getProperty("database.username");
-        dbPassword = env.getProperty("database.password");
-        this.styleRepository = styleRepository;
-        this.userRepository = userRepository;
+    public BeerRepositorySQLImpl(ConnectionPool connectionPool, MeterRegistry registry, Environment env) {
+        this.meters = new QueryMeters(registry, connectionPool, "beers");
+        this.streamFetchSize = env.getProperty("database.stream.fetch-size", Integer.class, 500);
     }
 
     @Override
-    public List<Beer> get(String name, Double minAbv, Double maxAbv, Integer styleId, String sortBy, String sortOrder) {
-        String query = "select * from beers";
-
-        try (
-                Connection connection = DriverManager.getConnection(dbUrl, dbUsername, dbPassword);
-                Statement statement = connection.createStatement();
-                ResultSet resultSet = statement.executeQuery(query);
-        ) {
-            List<Beer> result = getBeers(resultSet);
-            return filter(result, name, minAbv, maxAbv, styleId, sortBy, sortOrder);
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+    public List<Beer> get(BeerQuery query) {
+        return get(new BeerSqlQueryBuilder(BeerRowMapper.BEER_SELECT).query(query));
+    }
 
+    @Override
+    public void stream(BeerQuery query, Consumer<Beer> action) {
+        stream(new BeerSqlQueryBuilder(BeerRowMapper.BEER_SELECT).query(query), action);
     }
 
     @Override
     public Beer get(int id) {
-        String query = "select id, name, abv, style, createdBy " +
-                "from beers " +
-                "where id = ? ";
+        String query = BeerRowMapper.BEER_SELECT +
+                " where b.id = ?";
         try (
-                Connection connection = DriverManager.getConnection(dbUrl, dbUsername, dbPassword);
+                Connection connection = meters.getConnection("by-id");
                 PreparedStatement statement = connection.prepareStatement(query);
         ) {
             statement.setInt(1, id);
             try (
                     ResultSet resultSet = statement.executeQuery();
             ) {
-                List<Beer> result = getBeers(resultSet);
+                List<Beer> result = meters.rows("by-id", getBeers(resultSet));
                 if (result.isEmpty()) {
                     throw new EntityNotFoundException("Beer", id);
                 }
@@ -74,18 +71,17 @@ public class BeerRepositorySQLImpl implements BeerRepository {
 
     @Override
     public Beer get(String name) {
-        String query = "select id, name, abv " +
-                "from beers " +
-                "where name = ?";
+        String query = BeerRowMapper.BEER_SELECT +
+                " where b.name = ?";
         try (
-                Connection connection = DriverManager.getConnection(dbUrl, dbUsername, dbPassword);
+                Connection connection = meters.getConnection("by-name");
                 PreparedStatement statement = connection.prepareStatement(query);
         ) {
             statement.setString(1, name);
             try (
                     ResultSet resultSet = statement.executeQuery();
             ) {
-                List<Beer> result = getBeers(resultSet);
+                List<Beer> result = meters.rows("by-name", getBeers(resultSet));
                 if (result.isEmpty()) {
                     throw new EntityNotFoundException("Beer", "name", name);
                 }
@@ -96,20 +92,100 @@ public class BeerRepositorySQLImpl implements BeerRepository {
         }
     }
 
+    @Override
+    public List<String> getExistingNames(Collection<String> names) {
+        List<String> pending = new ArrayList<>(names);
+        List<String> result = new ArrayList<>();
+        try (
+                Connection connection = meters.getConnection("existing-names");
+        ) {
+            for (int from = 0; from < pending.size(); from += BATCH_SIZE) {
+                List<String> chunk = pending.subList(from, Math.min(from + BATCH_SIZE, pending.size()));
+                String query = "select name from beers " +
+                        "where name in (" + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+                try (
+                        PreparedStatement statement = connection.prepareStatement(query);
+                ) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        statement.setString(i + 1, chunk.get(i));
+                    }
+                    try (
+                            ResultSet resultSet = statement.executeQuery();
+                    ) {
+                        while (resultSet.next()) {
+                            result.add(resultSet.getString("name"));
+                        }
+                    }
+                }
+            }
+            return meters.rows("existing-names", result);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public void create(Beer beer) {
         String query = "insert into beers (name, abv, style, createdBy) " +
                 "values(?,?,?,?)";
 
         try (
-                Connection connection = DriverManager.getConnection(dbUrl, dbUsername, dbPassword);
-                PreparedStatement preparedStatement = connection.prepareStatement(query)
+                Connection connection = meters.getConnection("create");
+                PreparedStatement preparedStatement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)
         ) {
             preparedStatement.setString(1, beer.getName());
             preparedStatement.setDouble(2, beer.getAbv());
             preparedStatement.setInt(3, beer.getStyle().getId());
             preparedStatement.setInt(4, beer.getCreatedBy().getId());
             preparedStatement.executeUpdate();
+            try (
+                    ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
+            ) {
+                if (generatedKeys.next()) {
+                    beer.setId(generatedKeys.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void create(List<Beer> beers) {
+        String query = "insert into beers (name, abv, style, createdBy) " +
+                "values(?,?,?,?)";
+
+        try (
+                Connection connection = meters.getConnection("create-batch");
+                PreparedStatement preparedStatement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)
+        ) {
+            connection.setAutoCommit(false);
+            try {
+                for (int from = 0; from < beers.size(); from += BATCH_SIZE) {
+                    List<Beer> chunk = beers.subList(from, Math.min(from + BATCH_SIZE, beers.size()));
+                    for (Beer beer : chunk) {
+                        preparedStatement.setString(1, beer.getName());
+                        preparedStatement.setDouble(2, beer.getAbv());
+                        preparedStatement.setInt(3, beer.getStyle().getId());
+                        preparedStatement.setInt(4, beer.getCreatedBy().getId());
+                        preparedStatement.addBatch();
+                    }
+                    preparedStatement.executeBatch();
+                    try (
+                            ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
+                    ) {
+                        for (Beer beer : chunk) {
+                            if (generatedKeys.next()) {
+                                beer.setId(generatedKeys.getInt(1));
+                            }
+                        }
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -123,7 +199,7 @@ public class BeerRepositorySQLImpl implements BeerRepository {
                 "style = ? " +
                 "where id = ?";
         try (
-                Connection connection = DriverManager.getConnection(dbUrl, dbUsername, dbPassword);
+                Connection connection = meters.getConnection("update");
                 PreparedStatement preparedStatement = connection.prepareStatement(query);
         ) {
             preparedStatement.setString(1, beer.getName());
@@ -141,7 +217,7 @@ public class BeerRepositorySQLImpl implements BeerRepository {
         String query = "delete from beers " +
                 "where id = ? ";
         try (
-                Connection connection = DriverManager.getConnection(dbUrl, dbUsername, dbPassword);
+                Connection connection = meters.getConnection("delete");
                 PreparedStatement preparedStatement = connection.prepareStatement(query);
         ) {
             preparedStatement.setInt(1, id);
@@ -150,92 +226,56 @@ public class BeerRepositorySQLImpl implements BeerRepository {
         }
     }
 
-    private List<Beer> getBeers(ResultSet beersData) throws SQLException {
-        List<Beer> beers = new ArrayList<>();
-        while (beersData.next()) {
-            Beer beer = new Beer(
-                    beersData.getInt("id"),
-                    beersData.getString("name"),
-                    beersData.getDouble("abv"));
-            beer.setStyle(styleRepository.get(beersData.getInt("style")));
-            beer.setCreatedBy(userRepository.getById(beersData.getInt("createdBy")));
-            beers.add(beer);
-        }
-        return beers;
-    }
-
-    private static List<Beer> filterByName(List<Beer> beers, String name) {
-        if (name != null && !name.isEmpty()) {
-            beers = beers.stream()
-                    .filter(beer -> containsIgnoreCase(beer.getName(), name))
-                    .collect(Collectors.toList());
-        }
-        return beers;
-    }
-
-    private static List<Beer> filterByAbv(List<Beer> beers, Double minAbv, Double maxAbv) {
-        if (minAbv != null) {
-            beers = beers.stream()
-                    .filter(beer -> beer.getAbv() >= minAbv)
-                    .collect(Collectors.toList());
-        }
-
-        if (maxAbv != null) {
-            beers = beers.stream()
-                    .filter(beer -> beer.getAbv() <= maxAbv)
-                    .collect(Collectors.toList());
-        }
-
-        return beers;
-    }
-
-    private static List<Beer> filterByStyle(List<Beer> beers, Integer styleId) {
-        if (styleId != null) {
-            beers = beers.stream()
-                    .filter(beer -> beer.getStyle().getId() == styleId)
-                    .collect(Collectors.toList());
+    private List<Beer> get(BeerSqlQueryBuilder builder) {
+        try (
+                Connection connection = meters.getConnection("list");
+                PreparedStatement statement = connection.prepareStatement(builder.build());
+        ) {
+            builder.bind(statement);
+            try (
+                    ResultSet resultSet = statement.executeQuery();
+            ) {
+                return meters.rows("list", getBeers(resultSet));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
         }
-        return beers;
     }
 
-    private static List<Beer> sortBy(List<Beer> beers, String sortBy) {
-        if (sortBy != null && !sortBy.isEmpty()) {
-            switch (sortBy.toLowerCase()) {
-                case "name":
-                    beers.sort(Comparator.comparing(Beer::getName));
-                    break;
-                case "abv":
-                    beers.sort(Comparator.comparing(Beer::getAbv));
-                case "style":
-                    beers.sort(Comparator.comparing(beer -> beer.getStyle().getName()));
-                    break;
+    private void stream(BeerSqlQueryBuilder builder, Consumer<Beer> action) {
+        try (
+                Connection connection = meters.getConnection("stream");
+                PreparedStatement statement = connection.prepareStatement(builder.build(),
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ) {
+            // Most drivers only honour the fetch size (instead of buffering the whole result) inside a transaction.
+            connection.setAutoCommit(false);
+            statement.setFetchSize(streamFetchSize);
+            builder.bind(statement);
+            try (
+                    ResultSet resultSet = statement.executeQuery();
+            ) {
+                BeerRowMapper mapper = new BeerRowMapper();
+                long rows = 0;
+                while (resultSet.next()) {
+                    action.accept(mapper.mapRow(resultSet));
+                    rows++;
+                }
+                meters.rows("stream", rows);
             }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
         }
-        return beers;
     }
 
-    private static List<Beer> order(List<Beer> beers, String order) {
-        if (order != null && !order.isEmpty()) {
-            if (order.equals("desc")) {
-                Collections.reverse(beers);
-            }
+    private List<Beer> getBeers(ResultSet beersData) throws SQLException {
+        BeerRowMapper mapper = new BeerRowMapper();
+        List<Beer> beers = new ArrayList<>();
+        while (beersData.next()) {
+            beers.add(mapper.mapRow(beersData));
         }
         return beers;
     }
 
-    private static boolean containsIgnoreCase(String value, String sequence) {
-        return value.toLowerCase().contains(sequence.toLowerCase());
-    }
-
-    private static List<Beer> filter(List<Beer> result, String name, Double minAbv, Double maxAbv,
-                                     Integer styleId, String sortBy, String sortOrder) {
-        result = filterByName(result, name);
-        result = filterByAbv(result, minAbv, maxAbv);
-        result = filterByStyle(result, styleId);
-        result = sortBy(result, sortBy);
-        result = order(result, sortOrder);
-        return result;
-    }
-
-
 }
@@ -0,0 +1,61 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.Style;
+import com.company.web.springdemo.models.User;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+class BeerRowMapper {
+
+    static final String BEER_SELECT = "select b.id, b.name, b.abv, " +
+            "s.id as style_id, s.style_name, " +
+            "u.id as user_id, u.username, u.password, u.is_admin " +
+            "from beers b " +
+            "join style s on b.style = s.id " +
+            "left join users u on b.createdBy = u.id";
+
+    private final Map<Integer, Style> styles = new HashMap<>();
+    private final Map<Integer, User> users = new HashMap<>();
+
+    Beer mapRow(ResultSet row) throws SQLException {
+        Beer beer = new Beer(
+                row.getInt("id"),
+                row.getString("name"),
+                row.getDouble("abv"));
+        beer.setStyle(mapStyle(row));
+        beer.setCreatedBy(mapUser(row));
+        return beer;
+    }
+
+    private Style mapStyle(ResultSet row) throws SQLException {
+        int styleId = row.getInt("style_id");
+        Style style = styles.get(styleId);
+        if (style == null) {
+            style = new Style(styleId, row.getString("style_name"));
+            styles.put(styleId, style);
+        }
+        return style;
+    }
+
+    private User mapUser(ResultSet row) throws SQLException {
+        int userId = row.getInt("user_id");
+        if (row.wasNull()) {
+            return null;
+        }
+        User user = users.get(userId);
+        if (user == null) {
+            user = new User(
+                    userId,
+                    row.getString("username"),
+                    row.getString("password"),
+                    row.getBoolean("is_admin"));
+            users.put(userId, user);
+        }
+        return user;
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.models.BeerCursor;
+import com.company.web.springdemo.models.BeerQuery;
+import com.company.web.springdemo.models.BeerSortField;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+class BeerSqlQueryBuilder {
+
+    private final String select;
+    private final List<String> conditions = new ArrayList<>();
+    private final List<Object> parameters = new ArrayList<>();
+    private BeerSortField sortField = BeerSortField.ID;
+    private boolean descending;
+    private Integer limit;
+
+    BeerSqlQueryBuilder(String select) {
+        this.select = select;
+    }
+
+    BeerSqlQueryBuilder query(BeerQuery query) {
+        return nameContains(query.getName())
+                .abvBetween(query.getMinAbv(), query.getMaxAbv())
+                .style(query.getStyleId())
+                .sortBy(query.getSortField(), query.isDescending())
+                .after(query.getAfter())
+                .limit(query.getLimit());
+    }
+
+    BeerSqlQueryBuilder nameContains(String name) {
+        if (name != null && !name.isEmpty()) {
+            conditions.add("lower(b.name) like ? escape '!'");
+            parameters.add("%" + escapeLike(name.toLowerCase()) + "%");
+        }
+        return this;
+    }
+
+    BeerSqlQueryBuilder abvBetween(Double minAbv, Double maxAbv) {
+        if (minAbv != null) {
+            conditions.add("b.abv >= ?");
+            parameters.add(minAbv);
+        }
+        if (maxAbv != null) {
+            conditions.add("b.abv <= ?");
+            parameters.add(maxAbv);
+        }
+        return this;
+    }
+
+    BeerSqlQueryBuilder style(Integer styleId) {
+        if (styleId != null) {
+            conditions.add("b.style = ?");
+            parameters.add(styleId);
+        }
+        return this;
+    }
+
+    BeerSqlQueryBuilder sortBy(BeerSortField sortField, boolean descending) {
+        this.sortField = sortField;
+        this.descending = descending;
+        return this;
+    }
+
+    BeerSqlQueryBuilder after(BeerCursor cursor) {
+        if (cursor == null) {
+            return this;
+        }
+
+        // The cursor carries its own order, so this doesn't depend on sortBy() having been called first.
+        String comparison = cursor.isDescending() ? " < ?" : " > ?";
+        if (cursor.getSortField() == BeerSortField.ID) {
+            conditions.add("b.id" + comparison);
+            parameters.add(cursor.getId());
+            return this;
+        }
+
+        String column = column(cursor.getSortField());
+        Object key = cursor.getSortField() == BeerSortField.ABV ? cursor.getAbv() : cursor.getKey();
+        conditions.add("(" + column + comparison + " or (" + column + " = ? and b.id" + comparison + "))");
+        parameters.add(key);
+        parameters.add(key);
+        parameters.add(cursor.getId());
+        return this;
+    }
+
+    BeerSqlQueryBuilder limit(Integer limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    String build() {
+        StringBuilder query = new StringBuilder(select);
+        if (!conditions.isEmpty()) {
+            query.append(" where ").append(String.join(" and ", conditions));
+        }
+
+        String direction = descending ? " desc" : " asc";
+        query.append(" order by ");
+        if (sortField != BeerSortField.ID) {
+            query.append(column(sortField)).append(direction).append(", ");
+        }
+        query.append("b.id").append(direction);
+
+        if (limit != null) {
+            query.append(" limit ").append(limit);
+        }
+        return query.toString();
+    }
+
+    void bind(PreparedStatement statement) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            statement.setObject(i + 1, parameters.get(i));
+        }
+    }
+
+    static String column(BeerSortField field) {
+        switch (field) {
+            case NAME:
+                return "b.name";
+            case ABV:
+                return "b.abv";
+            case STYLE:
+                return "s.style_name";
+            default:
+                return "b.id";
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+    }
+
+}
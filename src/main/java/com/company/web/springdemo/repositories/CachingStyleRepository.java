@@ -0,0 +1,99 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.models.Style;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Primary
+@Repository
+@PropertySource("classpath:application.properties")
+public class CachingStyleRepository implements StyleRepository {
+
+    private final StyleRepository delegate;
+    private final long ttlMillis;
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public CachingStyleRepository(StyleRepositorySQLImpl delegate, Environment env) {
+        this.delegate = delegate;
+        this.ttlMillis = env.getProperty("styles.cache.ttl-seconds", Long.class, 300L) * 1000;
+    }
+
+    @Override
+    public List<Style> get() {
+        return current().styles;
+    }
+
+    @Override
+    public Style get(int id) {
+        Style style = current().byId.get(id);
+        if (style != null) {
+            return style;
+        }
+        // Styles are only added outside the application, so a miss may just mean the snapshot predates
+        // it: ask the store, which throws if the style really doesn't exist, and reload on the next read.
+        style = delegate.get(id);
+        invalidate();
+        return style;
+    }
+
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null || current.isExpired(ttlMillis)) {
+            current = reload();
+        }
+        return current;
+    }
+
+    private synchronized Snapshot reload() {
+        Snapshot current = snapshot;
+        if (current != null && !current.isExpired(ttlMillis)) {
+            return current;
+        }
+        current = new Snapshot(delegate.get());
+        snapshot = current;
+        version.incrementAndGet();
+        return current;
+    }
+
+    private static final class Snapshot {
+
+        private final List<Style> styles;
+        private final Map<Integer, Style> byId;
+        private final long loadedAt;
+
+        private Snapshot(List<Style> styles) {
+            this.styles = Collections.unmodifiableList(styles);
+            this.byId = new HashMap<>();
+            for (Style style : styles) {
+                byId.put(style.getId(), style);
+            }
+            this.loadedAt = System.currentTimeMillis();
+        }
+
+        private boolean isExpired(long ttlMillis) {
+            return System.currentTimeMillis() - loadedAt > ttlMillis;
+        }
+    }
+
+}
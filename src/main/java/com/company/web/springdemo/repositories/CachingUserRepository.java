@@ -0,0 +1,152 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.helpers.CacheStatistics;
+import com.company.web.springdemo.helpers.SingleFlight;
+import com.company.web.springdemo.models.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches users by id and username. Users are only changed outside the application, so entries are
+ * refreshed by the TTL alone. Hits don't lock: they only mark the entry as referenced, and when the cache
+ * is full, loads evict in insertion order, giving referenced entries a second chance.
+ */
+@Primary
+@Repository
+@PropertySource("classpath:application.properties")
+public class CachingUserRepository implements UserRepository {
+
+    private final UserRepository delegate;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final Map<Integer, Entry> byId = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byUsername = new ConcurrentHashMap<>();
+    // Eviction order; guarded by this. May hold entries that were since replaced or expired.
+    private final Queue<Entry> clock = new ArrayDeque<>();
+    private final SingleFlight<String, User> loads = new SingleFlight<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public CachingUserRepository(UserRepositorySQLImpl delegate, Environment env) {
+        this.delegate = delegate;
+        this.maxSize = env.getProperty("users.cache.max-size", Integer.class, 10000);
+        this.ttlMillis = env.getProperty("users.cache.ttl-seconds", Long.class, 300L) * 1000;
+    }
+
+    @Override
+    public List<User> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public User getById(int id) {
+        User user = lookup(byId, id);
+        if (user != null) {
+            return user;
+        }
+        return load("id:" + id, () -> delegate.getById(id));
+    }
+
+    @Override
+    public User getByUsername(String username) {
+        User user = lookup(byUsername, username);
+        if (user != null) {
+            return user;
+        }
+        return load("username:" + username, () -> delegate.getByUsername(username));
+    }
+
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(hits.get(), misses.get(), evictions.get(), loads.getCoalesced(), byId.size());
+    }
+
+    private <K> User lookup(Map<K, Entry> index, K key) {
+        Entry entry = index.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+            remove(entry);
+            misses.incrementAndGet();
+            return null;
+        }
+        entry.referenced = true;
+        hits.incrementAndGet();
+        return entry.user;
+    }
+
+    private User load(String key, Supplier<User> loader) {
+        return loads.execute(key, () -> {
+            User user = loader.get();
+            put(user);
+            return user;
+        });
+    }
+
+    private synchronized void put(User user) {
+        Entry entry = new Entry(user);
+        Entry previous = byId.put(user.getId(), entry);
+        if (previous != null) {
+            byUsername.remove(previous.user.getUsername(), previous);
+        }
+        byUsername.put(user.getUsername(), entry);
+        clock.add(entry);
+
+        while (byId.size() > maxSize && !clock.isEmpty()) {
+            Entry eldest = clock.poll();
+            if (!isCached(eldest)) {
+                continue;
+            }
+            if (eldest.referenced) {
+                eldest.referenced = false;
+                clock.add(eldest);
+            } else {
+                remove(eldest);
+                evictions.incrementAndGet();
+            }
+        }
+        // Replaced and expired entries are only skipped when they reach the head, so drop them in bulk
+        // once they outnumber the live ones.
+        if (clock.size() > 2 * byId.size() + 16) {
+            clock.removeIf(queued -> !isCached(queued));
+        }
+    }
+
+    private boolean isCached(Entry entry) {
+        return byId.get(entry.user.getId()) == entry;
+    }
+
+    private void remove(Entry entry) {
+        byId.remove(entry.user.getId(), entry);
+        byUsername.remove(entry.user.getUsername(), entry);
+    }
+
+    private static final class Entry {
+
+        private final User user;
+        private final long loadedAt;
+        private volatile boolean referenced;
+
+        private Entry(User user) {
+            this.user = user;
+            this.loadedAt = System.currentTimeMillis();
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.models.Beer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Evaluates a columnar scan by splitting it until the slices are small enough, running the filter and
+ * top-K selection on each leaf and merging the sorted halves on the way back up. Every merge keeps at
+ * most {@code limit} rows, so the result of a bounded query never grows past it.
+ */
+class ParallelQueryTask extends RecursiveTask<List<Beer>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int MIN_LEAF_SIZE = 4096;
+
+    private final BeerColumns.Scan scan;
+    private final int from;
+    private final int to;
+    private final int leafSize;
+
+    ParallelQueryTask(BeerColumns.Scan scan, int parallelism) {
+        this(scan, 0, scan.size(), Math.max(MIN_LEAF_SIZE, scan.size() / (parallelism * 4)));
+    }
+
+    private ParallelQueryTask(BeerColumns.Scan scan, int from, int to, int leafSize) {
+        this.scan = scan;
+        this.from = from;
+        this.to = to;
+        this.leafSize = leafSize;
+    }
+
+    @Override
+    protected List<Beer> compute() {
+        if (to - from <= leafSize) {
+            return scan.select(from, to);
+        }
+        int middle = (from + to) >>> 1;
+        ParallelQueryTask left = new ParallelQueryTask(scan, from, middle, leafSize);
+        ParallelQueryTask right = new ParallelQueryTask(scan, middle, to, leafSize);
+        left.fork();
+        List<Beer> rightResult = right.compute();
+        return merge(left.join(), rightResult);
+    }
+
+    private List<Beer> merge(List<Beer> left, List<Beer> right) {
+        Comparator<Beer> order = scan.getQuery().comparator();
+        int size = left.size() + right.size();
+        if (scan.getQuery().getLimit() != null) {
+            size = Math.min(size, scan.getQuery().getLimit());
+        }
+
+        List<Beer> merged = new ArrayList<>(size);
+        int i = 0;
+        int j = 0;
+        while (merged.size() < size) {
+            if (j == right.size() || (i < left.size() && order.compare(left.get(i), right.get(j)) <= 0)) {
+                merged.add(left.get(i++));
+            } else {
+                merged.add(right.get(j++));
+            }
+        }
+        return merged;
+    }
+
+}
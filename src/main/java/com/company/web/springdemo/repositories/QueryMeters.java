@@ -0,0 +1,40 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.database.ConnectionPool;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Per-query meters for the SQL repositories: connections taken from the pool and rows returned, both
+ * tagged with the repository and a short query name, so N+1 access patterns show up per call site.
+ */
+class QueryMeters {
+
+    private final MeterRegistry registry;
+    private final ConnectionPool connectionPool;
+    private final String repository;
+
+    QueryMeters(MeterRegistry registry, ConnectionPool connectionPool, String repository) {
+        this.registry = registry;
+        this.connectionPool = connectionPool;
+        this.repository = repository;
+    }
+
+    Connection getConnection(String query) throws SQLException {
+        registry.counter("beers.repository.connections", "repository", repository, "query", query).increment();
+        return connectionPool.getConnection();
+    }
+
+    <T> List<T> rows(String query, List<T> rows) {
+        rows(query, rows.size());
+        return rows;
+    }
+
+    void rows(String query, long count) {
+        registry.summary("beers.repository.rows", "repository", repository, "query", query).record(count);
+    }
+
+}
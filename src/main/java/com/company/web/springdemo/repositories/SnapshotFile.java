@@ -0,0 +1,84 @@
+package com.company.web.springdemo.repositories;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of a repository. It is written to a temporary file, synced and then moved into place,
+ * so a reader sees either the previous snapshot or the complete new one; a CRC32 trailer rejects
+ * anything that was damaged afterwards.
+ */
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x534E4150;
+
+    interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    interface Reader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    private SnapshotFile() {
+    }
+
+    static void write(Path path, Writer writer) {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            try (
+                    FileOutputStream file = new FileOutputStream(temp.toFile());
+                    CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file), new CRC32());
+                    DataOutputStream out = new DataOutputStream(checked);
+            ) {
+                out.writeInt(MAGIC);
+                writer.write(out);
+                out.writeLong(checked.getChecksum().getValue());
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the snapshot's contents, or {@code null} when no snapshot has been written yet.
+     */
+    static <T> T read(Path path, Reader<T> reader) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (
+                CheckedInputStream checked = new CheckedInputStream(
+                        new BufferedInputStream(Files.newInputStream(path)), new CRC32());
+                DataInputStream in = new DataInputStream(checked);
+        ) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalStateException(path + " is not a snapshot file.");
+            }
+            T value = reader.read(in);
+            long checksum = checked.getChecksum().getValue();
+            if (in.readLong() != checksum) {
+                throw new IllegalStateException("Snapshot " + path + " is corrupted.");
+            }
+            return value;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
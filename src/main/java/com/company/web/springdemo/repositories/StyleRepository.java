@@ -10,4 +10,11 @@ public interface StyleRepository {
 
     Style get(int id);
 
+    /**
+     * Advances whenever {@link #get()} may return different styles; stores that don't track this return 0.
+     */
+    default long getVersion() {
+        return 0;
+    }
+
 }
@@ -1,9 +1,11 @@
 package com.company.web.springdemo.repositories;
 
+import com.company.web.springdemo.database.ConnectionPool;
 import com.company.web.springdemo.exceptions.EntityNotFoundException;
 import com.company.web.springdemo.models.Style;
-import org.springframework.context.annotation.PropertySource;
-import org.springframework.core.env.Environment;
+import io.micrometer.core.annotation.Counted;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Repository;
 
 import java.sql.*;
@@ -11,15 +13,14 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Repository
-@PropertySource("classpath:application.properties")
+@Timed("beers.repository")
+@Counted(value = "beers.repository.failures", recordFailuresOnly = true)
 public class StyleRepositorySQLImpl implements StyleRepository{
 
-    private final String dbUrl, dbUsername, dbPassword;
+    private final QueryMeters meters;
 
-    public StyleRepositorySQLImpl(Environment env) {
-        dbUrl = env.getProperty("database.url");
-        dbUsername = env.getProperty("database.username");
-        dbPassword = env.getProperty("database.password");
+    public StyleRepositorySQLImpl(ConnectionPool connectionPool, MeterRegistry registry) {
+        this.meters = new QueryMeters(registry, connectionPool, "styles");
     }
 
     @Override
@@ -27,12 +28,11 @@ public class StyleRepositorySQLImpl implements StyleRepository{
         String query = "select * from style";
 
         try(
-                Connection connection = DriverManager.getConnection(dbUrl,dbUsername,dbPassword);
+                Connection connection = meters.getConnection("all");
                 Statement statement = connection.createStatement();
                 ResultSet resultSet = statement.executeQuery(query);
                 ){
-            List<Style> result = getStyles(resultSet);
-            return result;
+            return meters.rows("all", getStyles(resultSet));
         }catch (SQLException e){
             throw new RuntimeException(e);
         }
@@ -45,14 +45,14 @@ public class StyleRepositorySQLImpl implements StyleRepository{
                 "where id = ?";
 
         try(
-                Connection connection = DriverManager.getConnection(dbUrl,dbUsername,dbPassword);
+                Connection connection = meters.getConnection("by-id");
                 PreparedStatement preparedStatement = connection.prepareStatement(query);
         ){
             preparedStatement.setInt(1,id);
             try(
                     ResultSet resultSet = preparedStatement.executeQuery();
             ){
-                List<Style> result = getStyles(resultSet);
+                List<Style> result = meters.rows("by-id", getStyles(resultSet));
                 if(result.isEmpty()){
                     throw new EntityNotFoundException("Style",id);
                 }
@@ -0,0 +1,92 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.helpers.PersistentSortedMap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index from the trigrams of case-folded names to the ids of the names containing them. The
+ * index and its posting sets are persistent maps, so {@link #apply} costs O(log n) per changed gram and
+ * a snapshot shares everything else with its successor.
+ */
+class TrigramIndex {
+
+    static final int GRAM_LENGTH = 3;
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final PersistentSortedMap<String, PersistentSortedMap<Integer, Integer>> postings;
+
+    TrigramIndex() {
+        postings = PersistentSortedMap.empty();
+    }
+
+    private TrigramIndex(PersistentSortedMap<String, PersistentSortedMap<Integer, Integer>> postings) {
+        this.postings = postings;
+    }
+
+    TrigramIndex apply(Map<Integer, String> removed, Map<Integer, String> added) {
+        PersistentSortedMap<String, PersistentSortedMap<Integer, Integer>> next = postings;
+        for (Map.Entry<Integer, String> entry : removed.entrySet()) {
+            for (String gram : grams(entry.getValue())) {
+                PersistentSortedMap<Integer, Integer> ids = next.get(gram);
+                if (ids != null) {
+                    ids = ids.remove(entry.getKey());
+                    next = ids.isEmpty() ? next.remove(gram) : next.put(gram, ids);
+                }
+            }
+        }
+        for (Map.Entry<Integer, String> entry : added.entrySet()) {
+            for (String gram : grams(entry.getValue())) {
+                PersistentSortedMap<Integer, Integer> ids = next.get(gram);
+                if (ids == null) {
+                    ids = PersistentSortedMap.empty();
+                }
+                next = next.put(gram, ids.put(entry.getKey(), entry.getKey()));
+            }
+        }
+        return new TrigramIndex(next);
+    }
+
+    /**
+     * Returns the sorted ids whose folded name contains every trigram of {@code foldedNeedle}; the
+     * caller still has to verify the actual substring. Returns {@code null} when the needle is too
+     * short to be answered from the index.
+     */
+    int[] candidates(String foldedNeedle) {
+        if (foldedNeedle.length() < GRAM_LENGTH) {
+            return null;
+        }
+
+        List<PersistentSortedMap<Integer, Integer>> sets = new ArrayList<>();
+        for (String gram : grams(foldedNeedle)) {
+            PersistentSortedMap<Integer, Integer> ids = postings.get(gram);
+            if (ids == null) {
+                return NO_IDS;
+            }
+            sets.add(ids);
+        }
+        sets.sort(Comparator.comparingInt(PersistentSortedMap::size));
+
+        // Walk the smallest set in id order and probe the others.
+        List<PersistentSortedMap<Integer, Integer>> others = sets.subList(1, sets.size());
+        return sets.get(0).keys()
+                .filter(id -> others.stream().allMatch(ids -> ids.containsKey(id)))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    static Set<String> grams(String folded) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= folded.length(); i++) {
+            grams.add(folded.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+}
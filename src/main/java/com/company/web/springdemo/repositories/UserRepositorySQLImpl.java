@@ -1,10 +1,12 @@
 package com.company.web.springdemo.repositories;
 
+import com.company.web.springdemo.database.ConnectionPool;
 import com.company.web.springdemo.exceptions.EntityNotFoundException;
 import com.company.web.springdemo.models.User;
+import io.micrometer.core.annotation.Counted;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.PropertySource;
-import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Repository;
 
 import java.sql.*;
@@ -12,16 +14,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Repository
-@PropertySource("classpath:application.properties")
+@Timed("beers.repository")
+@Counted(value = "beers.repository.failures", recordFailuresOnly = true)
 public class UserRepositorySQLImpl implements UserRepository{
 
-    private final String dbUrl, dbUsername, dbPassword;
+    private final QueryMeters meters;
 
     @Autowired
-    public UserRepositorySQLImpl(Environment env) {
-        dbUrl = env.getProperty("database.url");
-        dbUsername = env.getProperty("database.username");
-        dbPassword = env.getProperty("database.password");
+    public UserRepositorySQLImpl(ConnectionPool connectionPool, MeterRegistry registry) {
+        this.meters = new QueryMeters(registry, connectionPool, "users");
     }
 
     @Override
@@ -29,12 +30,11 @@ public class UserRepositorySQLImpl implements UserRepository{
         String query = "select *" +
                 "from users";
         try(
-                Connection connection = DriverManager.getConnection(dbUrl,dbUsername,dbPassword);
+                Connection connection = meters.getConnection("all");
                 Statement statement = connection.createStatement();
                 ResultSet resultSet = statement.executeQuery(query);
                 ){
-            List<User> result = getUsers(resultSet);
-            return result;
+            return meters.rows("all", getUsers(resultSet));
         }catch (SQLException e){
             throw new RuntimeException(e);
         }
@@ -42,19 +42,19 @@ public class UserRepositorySQLImpl implements UserRepository{
 
     @Override
     public User getById(int id) {
-        String query = "select id, username " +
+        String query = "select id, username, password, is_admin " +
                 "from users " +
                 "where id = ?";
 
         try(
-                Connection connection = DriverManager.getConnection(dbUrl,dbUsername,dbPassword);
+                Connection connection = meters.getConnection("by-id");
                 PreparedStatement preparedStatement = connection.prepareStatement(query);
                 ){
             preparedStatement.setInt(1,id);
             try(
                     ResultSet resultSet = preparedStatement.executeQuery();
                     ){
-                List<User> result = getUsers(resultSet);
+                List<User> result = meters.rows("by-id", getUsers(resultSet));
                 if(result.isEmpty()){
                     throw new EntityNotFoundException("User",id);
                 }
@@ -67,19 +67,19 @@ public class UserRepositorySQLImpl implements UserRepository{
 
     @Override
     public User getByUsername(String username) {
-        String query = "select id, username " +
+        String query = "select id, username, password, is_admin " +
                 "from users " +
                 "where username = ?";
 
         try(
-                Connection connection = DriverManager.getConnection(dbUrl,dbUsername,dbPassword);
+                Connection connection = meters.getConnection("by-username");
                 PreparedStatement preparedStatement = connection.prepareStatement(query);
         ){
             preparedStatement.setString(1,username);
             try(
                     ResultSet resultSet = preparedStatement.executeQuery();
             ){
-                List<User> result = getUsers(resultSet);
+                List<User> result = meters.rows("by-username", getUsers(resultSet));
                 if(result.isEmpty()){
                     throw new EntityNotFoundException("User","username",username);
                 }
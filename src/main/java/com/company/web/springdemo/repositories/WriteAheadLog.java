@@ -0,0 +1,311 @@
+package com.company.web.springdemo.repositories;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log split into numbered segment files, each record framed as length, CRC32 and payload.
+ * Appends only enqueue their records; a single flusher thread writes everything that queued up while
+ * the previous sync was running and completes all of those appends with one {@code force}, so
+ * concurrent writers share the cost of a sync.
+ */
+class WriteAheadLog implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    interface Replayer {
+        void replay(DataInputStream record) throws IOException;
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final BlockingQueue<Batch> queue = new LinkedBlockingQueue<>();
+    private final Object segmentLock = new Object();
+    private final Thread flusher;
+    private final AtomicLong syncs = new AtomicLong();
+    private FileChannel segment;
+    private long sequence;
+    // Set when the current segment may end in a frame that couldn't be cut off; the next write opens a new one.
+    private boolean needsNewSegment;
+    private volatile boolean closed;
+
+    /**
+     * Opens a fresh segment after the existing ones; call {@link #replay} first to recover them.
+     */
+    WriteAheadLog(Path directory, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        List<Long> existing = segments(directory);
+        openSegment(existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1);
+
+        flusher = new Thread(this::flushLoop, "beer-wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Feeds every intact record of the segments numbered {@code fromSegment} or later to {@code replayer},
+     * in order. A torn or corrupted last frame of a segment is cut off, since the append that wrote it
+     * never completed. A bad frame followed by an intact one means acknowledged records would be lost,
+     * so recovery fails instead.
+     */
+    static void replay(Path directory, long fromSegment, Replayer replayer) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        for (long number : segments(directory)) {
+            if (number < fromSegment) {
+                continue;
+            }
+            try (
+                    FileChannel channel = FileChannel.open(segmentPath(directory, number),
+                            StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ) {
+                long size = channel.size();
+                long position = 0;
+                ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+                while (position + RECORD_HEADER_SIZE <= size) {
+                    byte[] payload = readFrame(channel, header, position, size);
+                    if (payload == null) {
+                        int length = header.getInt(0);
+                        long next = position + RECORD_HEADER_SIZE + length;
+                        if (length >= 0 && next + RECORD_HEADER_SIZE <= size
+                                && readFrame(channel, ByteBuffer.allocate(RECORD_HEADER_SIZE), next, size) != null) {
+                            throw new IOException("Corrupt record at offset " + position + " of "
+                                    + segmentPath(directory, number) + ".");
+                        }
+                        break;
+                    }
+                    replayer.replay(new DataInputStream(new ByteArrayInputStream(payload)));
+                    position += RECORD_HEADER_SIZE + payload.length;
+                }
+                if (position < size) {
+                    channel.truncate(position);
+                    channel.force(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues {@code records} to be written together; the future completes once they are on disk.
+     */
+    CompletableFuture<Void> append(List<byte[]> records) {
+        if (closed) {
+            throw new IllegalStateException("The write-ahead log is closed.");
+        }
+        Batch batch = new Batch(records);
+        queue.add(batch);
+        return batch.durable;
+    }
+
+    /**
+     * Starts a new segment and returns its number. Everything appended before the call ends up either
+     * in an older segment or at the start of the new one.
+     */
+    long rotate() throws IOException {
+        synchronized (segmentLock) {
+            segment.close();
+            needsNewSegment = true;
+            openSegment(sequence + 1);
+            needsNewSegment = false;
+            return sequence;
+        }
+    }
+
+    /**
+     * Number of syncs so far, each of which made one or more appends durable.
+     */
+    long syncCount() {
+        return syncs.get();
+    }
+
+    void deleteBefore(long number) throws IOException {
+        for (long existing : segments(directory)) {
+            if (existing < number) {
+                Files.deleteIfExists(segmentPath(directory, existing));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (segmentLock) {
+            segment.close();
+        }
+    }
+
+    private void flushLoop() {
+        List<Batch> batches = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Batch first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batches.add(first);
+                queue.drainTo(batches);
+                write(batches);
+                batches.forEach(batch -> batch.durable.complete(null));
+            } catch (IOException e) {
+                batches.forEach(batch -> batch.durable.completeExceptionally(new UncheckedIOException(e)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batches.clear();
+            }
+        }
+    }
+
+    private void write(List<Batch> batches) throws IOException {
+        int size = 0;
+        for (Batch batch : batches) {
+            for (byte[] record : batch.records) {
+                size += RECORD_HEADER_SIZE + record.length;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (Batch batch : batches) {
+            for (byte[] record : batch.records) {
+                buffer.putInt(record.length).putInt(checksum(record)).put(record);
+            }
+        }
+        buffer.flip();
+
+        synchronized (segmentLock) {
+            if (needsNewSegment) {
+                openSegment(sequence + 1);
+                needsNewSegment = false;
+            }
+            long start = segment.size();
+            try {
+                while (buffer.hasRemaining()) {
+                    segment.write(buffer);
+                }
+                segment.force(false);
+                syncs.incrementAndGet();
+            } catch (IOException e) {
+                discardFrom(start);
+                throw e;
+            }
+            if (segment.size() >= segmentBytes) {
+                try {
+                    rotate();
+                } catch (IOException e) {
+                    // These records are already on disk; the next write retries opening a segment.
+                }
+            }
+        }
+    }
+
+    /**
+     * Cuts a failed write back off the segment. Replay stops at the first bad frame, so if that isn't
+     * possible nothing may be appended after it; the segment is closed and writing moves to a new one.
+     * Records of the failed write can then still come back on replay, like any append whose outcome
+     * was reported as failed.
+     */
+    private void discardFrom(long start) {
+        try {
+            segment.truncate(start);
+            segment.force(false);
+        } catch (IOException e) {
+            needsNewSegment = true;
+            try {
+                segment.close();
+            } catch (IOException ignored) {
+                // Already abandoned.
+            }
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        segment = FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        sequence = number;
+    }
+
+    private static List<Long> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Path segmentPath(Path directory, long number) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Returns the payload of the frame at {@code position}, or {@code null} when it is torn or fails its
+     * checksum. Leaves the frame header in {@code header}.
+     */
+    private static byte[] readFrame(FileChannel channel, ByteBuffer header, long position, long size)
+            throws IOException {
+        readFully(channel, header.clear(), position);
+        int length = header.getInt(0);
+        if (length < 0 || position + RECORD_HEADER_SIZE + length > size) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, position + RECORD_HEADER_SIZE);
+        return checksum(payload.array()) == header.getInt(4) ? payload.array() : null;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of log segment.");
+            }
+        }
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    private static final class Batch {
+
+        private final List<byte[]> records;
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        private Batch(List<byte[]> records) {
+            this.records = records;
+        }
+    }
+
+}
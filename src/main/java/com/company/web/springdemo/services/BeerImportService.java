@@ -0,0 +1,13 @@
+package com.company.web.springdemo.services;
+
+import com.company.web.springdemo.models.BeerFileFormat;
+import com.company.web.springdemo.models.ImportReport;
+import com.company.web.springdemo.models.User;
+
+import java.io.InputStream;
+
+public interface BeerImportService {
+
+    ImportReport importBeers(InputStream input, BeerFileFormat format, User user);
+
+}
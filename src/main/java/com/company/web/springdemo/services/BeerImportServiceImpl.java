@@ -0,0 +1,285 @@
+package com.company.web.springdemo.services;
+
+import com.company.web.springdemo.exceptions.EntityDuplicateException;
+import com.company.web.springdemo.exceptions.EntityNotFoundException;
+import com.company.web.springdemo.helpers.CsvHelper;
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerBatchOutcome;
+import com.company.web.springdemo.models.BeerDto;
+import com.company.web.springdemo.models.BeerFileFormat;
+import com.company.web.springdemo.models.ImportChunkReport;
+import com.company.web.springdemo.models.ImportReport;
+import com.company.web.springdemo.models.Style;
+import com.company.web.springdemo.models.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@Timed("beers.service")
+@PropertySource("classpath:application.properties")
+public class BeerImportServiceImpl implements BeerImportService {
+
+    private static final int MAX_ERRORS_PER_CHUNK = 20;
+
+    private final BeerService beerService;
+    private final StyleService styleService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ExecutorService workers;
+    private final int chunkSize;
+    private final int maxPendingChunks;
+
+    @Autowired
+    public BeerImportServiceImpl(BeerService beerService, StyleService styleService, ObjectMapper objectMapper,
+                                 Validator validator, Environment env) {
+        this.beerService = beerService;
+        this.styleService = styleService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = env.getProperty("beers.import.chunk-size", Integer.class, 1000);
+        this.maxPendingChunks = env.getProperty("beers.import.max-pending-chunks", Integer.class, 4);
+
+        int workerCount = env.getProperty("beers.import.workers", Integer.class, 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "beer-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public ImportReport importBeers(InputStream input, BeerFileFormat format, User user) {
+        Map<Integer, Style> styles = new HashMap<>();
+        styleService.get().forEach(style -> styles.put(style.getId(), style));
+
+        // Bounds how many parsed chunks can wait for a worker, so a fast reader can't outrun the database.
+        Semaphore pendingChunks = new Semaphore(maxPendingChunks);
+        List<Future<ImportChunkReport>> chunks = new ArrayList<>();
+
+        // Chunks are written concurrently and each only checks names against the database, so a name
+        // repeated in two chunks that are in flight together could be inserted twice. Names are held here
+        // only until their chunk is written, when the database check takes over, so the set never grows
+        // beyond the chunks that fit between the reader and the workers.
+        Set<String> namesInFlight = ConcurrentHashMap.newKeySet();
+
+        try (
+                BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        ) {
+            Chunk chunk = new Chunk(0, 1);
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    if (lineNumber == 1 && format == BeerFileFormat.CSV && isHeader(line)) {
+                        continue;
+                    }
+                    Beer beer = parse(line, format, styles);
+                    if (!namesInFlight.add(beer.getName())) {
+                        throw new IllegalArgumentException(
+                                new EntityDuplicateException("Beer", "name", beer.getName()).getMessage());
+                    }
+                    chunk.add(lineNumber, beer);
+                } catch (IllegalArgumentException e) {
+                    chunk.reject(lineNumber, e.getMessage());
+                }
+
+                if (chunk.size() >= chunkSize) {
+                    chunks.add(submit(chunk, user, pendingChunks, namesInFlight));
+                    chunk = new Chunk(chunks.size(), lineNumber + 1);
+                }
+            }
+            if (chunk.size() > 0) {
+                chunks.add(submit(chunk, user, pendingChunks, namesInFlight));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<ImportChunkReport> reports = new ArrayList<>();
+        for (Future<ImportChunkReport> chunk : chunks) {
+            reports.add(await(chunk));
+        }
+        return new ImportReport(reports);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private Future<ImportChunkReport> submit(Chunk chunk, User user, Semaphore pendingChunks,
+                                             Set<String> namesInFlight) {
+        try {
+            pendingChunks.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import was interrupted.", e);
+        }
+
+        try {
+            return workers.submit(() -> {
+                try {
+                    return write(chunk, user);
+                } finally {
+                    chunk.beers.forEach(beer -> namesInFlight.remove(beer.getName()));
+                    pendingChunks.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingChunks.release();
+            throw e;
+        }
+    }
+
+    private ImportChunkReport write(Chunk chunk, User user) {
+        if (chunk.beers.isEmpty()) {
+            return chunk.report();
+        }
+
+        try {
+            List<BeerBatchOutcome> outcomes = beerService.create(chunk.beers, user);
+            for (int i = 0; i < outcomes.size(); i++) {
+                if (outcomes.get(i) == BeerBatchOutcome.CREATED) {
+                    chunk.imported++;
+                } else {
+                    chunk.reject(chunk.lines.get(i),
+                            new EntityDuplicateException("Beer", "name", chunk.beers.get(i).getName()).getMessage());
+                }
+            }
+        } catch (RuntimeException e) {
+            chunk.failed += chunk.beers.size();
+            chunk.error("Chunk could not be written: " + e.getMessage());
+        }
+        return chunk.report();
+    }
+
+    private Beer parse(String line, BeerFileFormat format, Map<Integer, Style> styles) {
+        BeerDto dto = format == BeerFileFormat.CSV ? parseCsv(line) : parseJson(line);
+
+        Set<ConstraintViolation<BeerDto>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.iterator().next().getMessage());
+        }
+
+        Style style = styles.get(dto.getStyleId());
+        if (style == null) {
+            throw new IllegalArgumentException(new EntityNotFoundException("Style", dto.getStyleId()).getMessage());
+        }
+
+        Beer beer = new Beer();
+        beer.setName(dto.getName());
+        beer.setAbv(dto.getAbv());
+        beer.setStyle(style);
+        return beer;
+    }
+
+    private static BeerDto parseCsv(String line) {
+        List<String> fields = CsvHelper.parseLine(line);
+        if (fields.size() < 3) {
+            throw new IllegalArgumentException("Expected name, abv and styleId columns.");
+        }
+        BeerDto dto = new BeerDto();
+        dto.setName(fields.get(0));
+        dto.setAbv(Double.parseDouble(fields.get(1)));
+        dto.setStyleId(Integer.parseInt(fields.get(2)));
+        return dto;
+    }
+
+    private BeerDto parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, BeerDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON.");
+        }
+    }
+
+    private static boolean isHeader(String line) {
+        return CsvHelper.parseLine(line).get(0).equalsIgnoreCase("name");
+    }
+
+    private static ImportChunkReport await(Future<ImportChunkReport> chunk) {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static final class Chunk {
+
+        private final int index;
+        private final long firstLine;
+        private final List<Beer> beers = new ArrayList<>();
+        private final List<Long> lines = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private int imported;
+        private int failed;
+
+        private Chunk(int index, long firstLine) {
+            this.index = index;
+            this.firstLine = firstLine;
+        }
+
+        private void add(long line, Beer beer) {
+            beers.add(beer);
+            lines.add(line);
+        }
+
+        private void reject(long line, String message) {
+            failed++;
+            error("Line " + line + ": " + message);
+        }
+
+        private void error(String message) {
+            if (errors.size() < MAX_ERRORS_PER_CHUNK) {
+                errors.add(message);
+            }
+        }
+
+        private int size() {
+            return beers.size() + failed;
+        }
+
+        private ImportChunkReport report() {
+            return new ImportChunkReport(index, firstLine, imported, failed, errors);
+        }
+    }
+
+}
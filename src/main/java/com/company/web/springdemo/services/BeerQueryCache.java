@@ -0,0 +1,188 @@
+package com.company.web.springdemo.services;
+
+import com.company.web.springdemo.helpers.CacheStatistics;
+import com.company.web.springdemo.helpers.SingleFlight;
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerQuery;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches list query results by their normalized {@link BeerQuery}. Every entry is tagged with the
+ * write generation it was loaded under; any write through {@link BeerService} bumps the generation,
+ * so a result loaded before the last write on this node is never served. Within a generation an entry
+ * is fresh for the TTL, then served stale for a grace period while a single background reload runs.
+ * Concurrent misses for the same query and generation share one repository call.
+ */
+@Component
+@PropertySource("classpath:application.properties")
+public class BeerQueryCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final long staleMillis;
+    private final ExecutorService refresher;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final LinkedHashMap<BeerQuery, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final SingleFlight<FlightKey, List<Beer>> loads = new SingleFlight<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public BeerQueryCache(Environment env) {
+        this.maxSize = env.getProperty("beers.query-cache.max-size", Integer.class, 1000);
+        this.ttlMillis = env.getProperty("beers.query-cache.ttl-seconds", Long.class, 30L) * 1000;
+        this.staleMillis = env.getProperty("beers.query-cache.stale-seconds", Long.class, 30L) * 1000;
+        this.refresher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "beer-query-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public List<Beer> get(BeerQuery query, Supplier<List<Beer>> loader) {
+        Entry entry = lookup(query);
+        if (entry == null) {
+            return load(query, loader);
+        }
+        if (System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+            refresh(query, entry, loader);
+        }
+        return entry.result;
+    }
+
+    /**
+     * Marks every cached result as outdated. Called after each write, once the repository has applied it.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(hits.get(), misses.get(), evictions.get(), loads.getCoalesced(), entries.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdown();
+    }
+
+    private synchronized Entry lookup(BeerQuery query) {
+        Entry entry = entries.get(query);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.generation != generation.get()
+                || System.currentTimeMillis() - entry.loadedAt > ttlMillis + staleMillis) {
+            entries.remove(query, entry);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry;
+    }
+
+    private List<Beer> load(BeerQuery query, Supplier<List<Beer>> loader) {
+        // Read the generation before querying: if a write lands meanwhile, the entry is already outdated,
+        // and callers arriving after the write start their own flight instead of joining this one.
+        long loadedGeneration = generation.get();
+        return loads.execute(new FlightKey(query, loadedGeneration), () -> {
+            List<Beer> result = List.copyOf(loader.get());
+            put(query, new Entry(result, loadedGeneration));
+            return result;
+        });
+    }
+
+    private void refresh(BeerQuery query, Entry entry, Supplier<List<Beer>> loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    load(query, loader);
+                } catch (RuntimeException e) {
+                    // Leave the stale entry in place; the next reader past the TTL retries.
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private synchronized void put(BeerQuery query, Entry entry) {
+        if (entry.generation != generation.get()) {
+            return;
+        }
+        entries.put(query, entry);
+
+        Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+        while (entries.size() > maxSize && leastRecentlyUsed.hasNext()) {
+            leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static final class FlightKey {
+
+        private final BeerQuery query;
+        private final long generation;
+
+        private FlightKey(BeerQuery query, long generation) {
+            this.query = query;
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            FlightKey that = (FlightKey) o;
+            return generation == that.generation && query.equals(that.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, generation);
+        }
+    }
+
+    private static final class Entry {
+
+        private final List<Beer> result;
+        private final long generation;
+        private final long loadedAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(List<Beer> result, long generation) {
+            this.result = result;
+            this.generation = generation;
+            this.loadedAt = System.currentTimeMillis();
+        }
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.company.web.springdemo.services;
+
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerMatch;
+import com.company.web.springdemo.models.BeerSuggestion;
+
+import java.util.List;
+
+public interface BeerSearchService {
+
+    List<BeerMatch> search(String query, int maxDistance, int limit);
+
+    List<BeerSuggestion> suggest(String prefix, int limit);
+
+    int getSuggestLimit();
+
+    void index(Beer beer);
+
+    void reindex(Beer previous, Beer current);
+
+    void unindex(Beer beer);
+
+}
@@ -0,0 +1,137 @@
+package com.company.web.springdemo.services;
+
+import com.company.web.springdemo.helpers.BkTree;
+import com.company.web.springdemo.helpers.PrefixTrie;
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerMatch;
+import com.company.web.springdemo.models.BeerQuery;
+import com.company.web.springdemo.models.BeerSuggestion;
+import com.company.web.springdemo.repositories.BeerRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+@Service
+@Timed("beers.service")
+@PropertySource("classpath:application.properties")
+public class BeerSearchServiceImpl implements BeerSearchService {
+
+    private static final Comparator<BeerMatch> RANKING = Comparator.comparingInt(BeerMatch::getDistance)
+            .thenComparing(BeerMatch::getName)
+            .thenComparingInt(BeerMatch::getId);
+
+    private final BeerRepository repository;
+    private final int suggestTopK;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Built from the repository on first use. The load runs under the write lock, so a write either
+    // finds nothing loaded yet (and the load, which starts after the write committed, will stream it) or
+    // waits for the load to finish and then applies its change. Applying a change the load already
+    // streamed is harmless, because adding an existing entry and removing a missing one are no-ops.
+    private BkTree names;
+    private PrefixTrie prefixes;
+    private volatile boolean loaded;
+
+    @Autowired
+    public BeerSearchServiceImpl(BeerRepository repository, Environment env) {
+        this.repository = repository;
+        this.suggestTopK = Math.max(1, env.getProperty("beers.suggest.top-k", Integer.class, 10));
+    }
+
+    @Override
+    public List<BeerMatch> search(String query, int maxDistance, int limit) {
+        ensureLoaded();
+        List<BeerMatch> matches;
+        lock.readLock().lock();
+        try {
+            matches = names.search(query, maxDistance);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return matches.stream()
+                .sorted(RANKING)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<BeerSuggestion> suggest(String prefix, int limit) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return prefixes.suggest(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getSuggestLimit() {
+        return suggestTopK;
+    }
+
+    @Override
+    public void index(Beer beer) {
+        write(() -> add(beer));
+    }
+
+    @Override
+    public void reindex(Beer previous, Beer current) {
+        write(() -> {
+            remove(previous);
+            add(current);
+        });
+    }
+
+    @Override
+    public void unindex(Beer beer) {
+        write(() -> remove(beer));
+    }
+
+    private void add(Beer beer) {
+        names.add(beer.getId(), beer.getName());
+        prefixes.add(beer.getId(), beer.getName());
+    }
+
+    private void remove(Beer beer) {
+        names.remove(beer.getId(), beer.getName());
+        prefixes.remove(beer.getId(), beer.getName());
+    }
+
+    private void write(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                change.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                names = new BkTree();
+                prefixes = new PrefixTrie(suggestTopK);
+                repository.stream(BeerQuery.ALL, this::add);
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+}
@@ -1,18 +1,25 @@
 package com.company.web.springdemo.services;
 
 import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerBatchOutcome;
+import com.company.web.springdemo.models.BeerQuery;
 import com.company.web.springdemo.models.User;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface BeerService {
 
-    List<Beer> get(String name, Double minAbv, Double maxAbv, Integer styleId, String sortBy, String sortOrder);
+    List<Beer> get(BeerQuery query);
+
+    void stream(BeerQuery query, Consumer<Beer> action);
 
     Beer get(int id);
 
     void create(Beer beer, User user);
 
+    List<BeerBatchOutcome> create(List<Beer> beers, User user);
+
     void update(Beer beer, User user);
 
     void delete(int id, User user);
@@ -4,30 +4,50 @@ import com.company.web.springdemo.exceptions.EntityDuplicateException;
 import com.company.web.springdemo.exceptions.EntityNotFoundException;
 import com.company.web.springdemo.exceptions.UnauthorizedOperationException;
 import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerBatchOutcome;
+import com.company.web.springdemo.models.BeerQuery;
 import com.company.web.springdemo.models.User;
 import com.company.web.springdemo.repositories.BeerRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.PathVariable;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
+@Timed("beers.service")
 public class BeerServiceImpl implements BeerService {
 
     public static final String DELETE_AUTHENTICATION_ERROR = "Only admins or the creator of the beer can delete it.";
     public static final String UPDATE_AUTHENTICATION_ERROR = "Only admins or the creator of the beer can modify it.";
     private final BeerRepository repository;
+    private final BeerSearchService searchService;
+    private final BeerQueryCache queryCache;
+    private final BeerVersionTracker versions;
 
     @Autowired
-    public BeerServiceImpl(BeerRepository repository) {
+    public BeerServiceImpl(BeerRepository repository, BeerSearchService searchService, BeerQueryCache queryCache,
+                           BeerVersionTracker versions) {
         this.repository = repository;
+        this.searchService = searchService;
+        this.queryCache = queryCache;
+        this.versions = versions;
     }
 
     @Override
-    public List<Beer> get(String name, Double minAbv, Double maxAbv, Integer styleId, String sortBy, String sortOrder) {
-        return repository.get(name, minAbv, maxAbv, styleId, sortBy, sortOrder);
+    public List<Beer> get(BeerQuery query) {
+        return queryCache.get(query, () -> repository.get(query));
+    }
+
+    @Override
+    public void stream(BeerQuery query, Consumer<Beer> action) {
+        repository.stream(query, action);
     }
 
     @Override
@@ -49,11 +69,45 @@ public class BeerServiceImpl implements BeerService {
         }
         beer.setCreatedBy(user);
         repository.create(beer);
+        changed(List.of(beer.getId()));
+        searchService.index(beer);
+    }
+
+    @Override
+    public List<BeerBatchOutcome> create(List<Beer> beers, User user) {
+        List<String> names = new ArrayList<>();
+        beers.forEach(beer -> names.add(beer.getName()));
+
+        // Names are compared exactly, like the single create and every repository's name lookup.
+        Set<String> taken = new HashSet<>(repository.getExistingNames(names));
+
+        List<BeerBatchOutcome> outcomes = new ArrayList<>();
+        List<Beer> toCreate = new ArrayList<>();
+        for (Beer beer : beers) {
+            if (!taken.add(beer.getName())) {
+                outcomes.add(BeerBatchOutcome.DUPLICATE_NAME);
+                continue;
+            }
+            beer.setCreatedBy(user);
+            toCreate.add(beer);
+            outcomes.add(BeerBatchOutcome.CREATED);
+        }
+        if (toCreate.isEmpty()) {
+            return outcomes;
+        }
+
+        repository.create(toCreate);
+        List<Integer> createdIds = new ArrayList<>();
+        toCreate.forEach(beer -> createdIds.add(beer.getId()));
+        changed(createdIds);
+        toCreate.forEach(searchService::index);
+        return outcomes;
     }
 
     @Override
     public void update(Beer beer, User user) {
-        if (user.equals(repository.get(beer.getId()).getCreatedBy()) || user.isAdmin()) {
+        Beer existing = repository.get(beer.getId());
+        if (user.equals(existing.getCreatedBy()) || user.isAdmin()) {
             boolean duplicateExists = true;
             try {
                 Beer existingBeer = repository.get(beer.getName());
@@ -68,6 +122,8 @@ public class BeerServiceImpl implements BeerService {
                 throw new EntityDuplicateException("Beer", "name", beer.getName());
             }
             repository.update(beer);
+            changed(List.of(beer.getId()));
+            searchService.reindex(existing, beer);
         } else {
             throw new UnauthorizedOperationException(UPDATE_AUTHENTICATION_ERROR);
         }
@@ -76,11 +132,19 @@ public class BeerServiceImpl implements BeerService {
 
     @Override
     public void delete(int id, User user) {
-        if (user.equals(get(id).getCreatedBy()) || user.isAdmin()) {
+        Beer existing = get(id);
+        if (user.equals(existing.getCreatedBy()) || user.isAdmin()) {
             repository.delete(id);
+            changed(List.of(id));
+            searchService.unindex(existing);
         } else {
             throw new UnauthorizedOperationException(DELETE_AUTHENTICATION_ERROR);
         }
     }
 
+    private void changed(List<Integer> beerIds) {
+        queryCache.invalidate();
+        versions.changed(beerIds);
+    }
+
 }
@@ -0,0 +1,45 @@
+package com.company.web.springdemo.services;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters for the catalogue and for each beer, advanced by every write through
+ * {@link BeerService}. A beer's version is the catalogue version of its last write on this node.
+ * Tags include the startup time, so counters that restart from zero never repeat an earlier tag.
+ * They are weak entity tags: one version may be sent either gzipped or as-is, and those bodies differ
+ * byte for byte, so the tag can only promise that they are equivalent.
+ */
+@Component
+public class BeerVersionTracker {
+
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong catalogueVersion = new AtomicLong();
+    private final Map<Integer, Long> beerVersions = new ConcurrentHashMap<>();
+
+    public void changed(Collection<Integer> beerIds) {
+        long version = catalogueVersion.incrementAndGet();
+        beerIds.forEach(id -> beerVersions.merge(id, version, Math::max));
+    }
+
+    public long getCatalogueVersion() {
+        return catalogueVersion.get();
+    }
+
+    public long getVersion(int beerId) {
+        return beerVersions.getOrDefault(beerId, 0L);
+    }
+
+    public String getCatalogueTag() {
+        return "W/\"beers-" + epoch + "-" + getCatalogueVersion() + "\"";
+    }
+
+    public String getTag(int beerId) {
+        return "W/\"beer-" + epoch + "-" + beerId + "-" + getVersion(beerId) + "\"";
+    }
+
+}
@@ -2,12 +2,14 @@ package com.company.web.springdemo.services;
 
 import com.company.web.springdemo.models.Style;
 import com.company.web.springdemo.repositories.StyleRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 
 @Service
+@Timed("beers.service")
 public class StyleServiceImpl implements StyleService {
 
     private final StyleRepository repository;
@@ -2,10 +2,12 @@ package com.company.web.springdemo.services;
 
 import com.company.web.springdemo.models.User;
 import com.company.web.springdemo.repositories.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 @Service
+@Timed("beers.service")
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
@@ -0,0 +1,82 @@
+package com.company.web.springdemo.helpers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistentSortedMapTests {
+
+    @Test
+    void matchesTreeMapUnderRandomWrites() {
+        Random random = new Random(42);
+        PersistentSortedMap<Integer, String> map = PersistentSortedMap.empty();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                map = map.put(key, "v" + i);
+                expected.put(key, "v" + i);
+            }
+            if (i % 1_000 == 0) {
+                assertSameContents(expected, map, random);
+            }
+        }
+        assertSameContents(expected, map, random);
+    }
+
+    @Test
+    void earlierVersionsAreUnaffectedByWrites() {
+        PersistentSortedMap<Integer, String> before = PersistentSortedMap.empty();
+        for (int key = 0; key < 100; key++) {
+            before = before.put(key, "old");
+        }
+
+        PersistentSortedMap<Integer, String> after = before.put(200, "new").remove(50).put(10, "new");
+
+        assertEquals(100, before.size());
+        assertEquals("old", before.get(50));
+        assertEquals("old", before.get(10));
+        assertNull(before.get(200));
+        assertEquals(100, after.size());
+        assertNull(after.get(50));
+        assertEquals("new", after.get(10));
+    }
+
+    @Test
+    void removingAMissingKeyReturnsTheSameMap() {
+        PersistentSortedMap<Integer, String> map = PersistentSortedMap.<Integer, String>empty().put(1, "one");
+
+        assertTrue(map == map.remove(2));
+    }
+
+    private static void assertSameContents(TreeMap<Integer, String> expected,
+                                           PersistentSortedMap<Integer, String> map, Random random) {
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()));
+        assertEquals(new ArrayList<>(expected.keySet()), map.keys().collect(Collectors.toList()));
+        List<String> descending = new ArrayList<>(expected.values());
+        Collections.reverse(descending);
+        assertEquals(descending, map.values(true).collect(Collectors.toList()));
+
+        int from = random.nextInt(2_000);
+        int to = from + random.nextInt(500);
+        NavigableMap<Integer, String> range = expected.subMap(from, true, to, true);
+        assertEquals(new ArrayList<>(range.values()), map.values(from, to, false).collect(Collectors.toList()));
+        assertEquals(new ArrayList<>(range.descendingMap().values()),
+                map.values(from, to, true).collect(Collectors.toList()));
+    }
+
+}
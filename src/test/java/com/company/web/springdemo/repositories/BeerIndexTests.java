@@ -0,0 +1,98 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerCursor;
+import com.company.web.springdemo.models.BeerQuery;
+import com.company.web.springdemo.models.BeerSortField;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BeerIndexTests {
+
+    private static final int PAGE_SIZE = 7;
+
+    private final StyleRepository styles = new StyleRepositoryImpl();
+
+    @Test
+    void pagesEverySortOrderByCursorInBothDirections() {
+        List<Beer> catalogue = catalogue();
+        BeerIndex index = new BeerIndex().apply(List.of(), catalogue);
+
+        for (BeerSortField sortField : BeerSortField.values()) {
+            for (boolean descending : new boolean[]{false, true}) {
+                String sortBy = sortField.name().toLowerCase();
+                String sortOrder = descending ? "desc" : "asc";
+                assertPages(index, catalogue, BeerQuery.of(null, null, null, null, sortBy, sortOrder),
+                        beer -> true);
+                assertPages(index, catalogue, BeerQuery.of(null, 4.0, 6.5, null, sortBy, sortOrder),
+                        beer -> beer.getAbv() >= 4.0 && beer.getAbv() <= 6.5);
+                assertPages(index, catalogue, BeerQuery.of(null, null, null, 2, sortBy, sortOrder),
+                        beer -> beer.getStyle().getId() == 2);
+                assertPages(index, catalogue, BeerQuery.of("ale", null, null, null, sortBy, sortOrder),
+                        beer -> beer.getName().toLowerCase().contains("ale"));
+            }
+        }
+    }
+
+    @Test
+    void cursorOfADeletedRowStillResumesAfterIt() {
+        List<Beer> catalogue = catalogue();
+        BeerIndex index = new BeerIndex().apply(List.of(), catalogue);
+        BeerQuery query = BeerQuery.of(null, null, null, null, "name", "desc");
+        List<Beer> firstPage = index.find(query.page(null, PAGE_SIZE));
+        Beer last = firstPage.get(PAGE_SIZE - 1);
+
+        BeerIndex afterDelete = index.apply(List.of(last), List.of());
+        List<Beer> expected = expected(catalogue, query, beer -> beer.getId() != last.getId());
+
+        assertEquals(expected.subList(PAGE_SIZE - 1, 2 * PAGE_SIZE - 1),
+                afterDelete.find(query.page(BeerCursor.of(last, BeerSortField.NAME, true), PAGE_SIZE)));
+    }
+
+    private static void assertPages(BeerIndex index, List<Beer> catalogue, BeerQuery query,
+                                    Predicate<Beer> filter) {
+        List<Beer> paged = new ArrayList<>();
+        BeerCursor cursor = null;
+        while (true) {
+            List<Beer> page = index.find(query.page(cursor, PAGE_SIZE));
+            paged.addAll(page);
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            cursor = BeerCursor.decode(BeerCursor.of(page.get(PAGE_SIZE - 1), query.getSortField(),
+                    query.isDescending()).encode());
+        }
+        assertEquals(expected(catalogue, query, filter), paged);
+    }
+
+    private static List<Beer> expected(List<Beer> catalogue, BeerQuery query, Predicate<Beer> filter) {
+        Comparator<Beer> order = query.getSortField().comparator().thenComparingInt(Beer::getId);
+        return catalogue.stream()
+                .filter(filter)
+                .sorted(query.isDescending() ? order.reversed() : order)
+                .collect(Collectors.toList());
+    }
+
+    // Few distinct abv values and names, so most pages break inside a run of equal sort keys.
+    private List<Beer> catalogue() {
+        Random random = new Random(7);
+        String[] words = {"Pale Ale", "Porter", "Stout", "Amber Ale", "Lager"};
+        List<Beer> beers = new ArrayList<>();
+        for (int id = 1; id <= 300; id++) {
+            Beer beer = new Beer(id, words[random.nextInt(words.length)] + " " + random.nextInt(20),
+                    random.nextInt(16) / 2.0);
+            beer.setStyle(styles.get(1 + random.nextInt(3)));
+            beers.add(beer);
+        }
+        return beers;
+    }
+
+}
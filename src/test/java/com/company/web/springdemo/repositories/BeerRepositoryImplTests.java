@@ -0,0 +1,138 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.exceptions.EntityNotFoundException;
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerQuery;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BeerRepositoryImplTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversFromSnapshotPlusLogTail() {
+        StyleRepository styles = new StyleRepositoryImpl();
+        BeerRepositoryImpl repository = open(styles);
+
+        Beer snapshotted = beer("Snapshotted Stout", 7.0, styles);
+        repository.create(snapshotted);
+        repository.snapshot();
+
+        // Everything below only exists in the log tail; the repository is abandoned without a shutdown snapshot.
+        Beer logged = beer("Logged Lager", 4.2, styles);
+        repository.create(logged);
+        Beer renamed = beer("Renamed Stout", 7.5, styles);
+        renamed.setId(snapshotted.getId());
+        repository.update(renamed);
+        repository.delete(2);
+
+        BeerRepositoryImpl recovered = open(styles);
+        try {
+            assertEquals(List.of("Glarus English Ale", "Opasen Char", "Renamed Stout", "Logged Lager"),
+                    names(recovered.get(BeerQuery.ALL)));
+            assertEquals(7.5, recovered.get(snapshotted.getId()).getAbv());
+            assertThrows(EntityNotFoundException.class, () -> recovered.get(2));
+
+            // New ids continue after the recovered ones.
+            Beer next = beer("Next Bock", 6.0, styles);
+            recovered.create(next);
+            assertEquals(logged.getId() + 1, next.getId());
+        } finally {
+            recovered.shutdown();
+        }
+    }
+
+    @Test
+    void freshStoreIsSeededAndSurvivesRestart() {
+        StyleRepository styles = new StyleRepositoryImpl();
+        open(styles).shutdown();
+
+        BeerRepositoryImpl reopened = open(styles);
+        try {
+            assertEquals(List.of("Glarus English Ale", "Rhombus Porter", "Opasen Char"),
+                    names(reopened.get(BeerQuery.ALL)));
+        } finally {
+            reopened.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentWritersShareLogSyncs() throws Exception {
+        StyleRepository styles = new StyleRepositoryImpl();
+        BeerRepositoryImpl repository = open(styles);
+        int writers = 8;
+        int writesPerWriter = 50;
+        long syncsBefore = repository.writeAheadLog().syncCount();
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int writer = 0; writer < writers; writer++) {
+            String prefix = "Writer " + writer + " Ale ";
+            tasks.add(() -> {
+                start.await();
+                for (int i = 0; i < writesPerWriter; i++) {
+                    repository.create(beer(prefix + i, 5.0, styles));
+                }
+                return null;
+            });
+        }
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            tasks.forEach(task -> results.add(executor.submit(task)));
+            start.countDown();
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long syncs = repository.writeAheadLog().syncCount() - syncsBefore;
+        int writes = writers * writesPerWriter;
+        assertTrue(syncs < writes, syncs + " syncs for " + writes + " writes");
+        assertEquals(3 + writes, repository.get(BeerQuery.ALL).size());
+
+        BeerRepositoryImpl recovered = open(styles);
+        try {
+            assertEquals(3 + writes, recovered.get(BeerQuery.ALL).size());
+        } finally {
+            recovered.shutdown();
+        }
+    }
+
+    private BeerRepositoryImpl open(StyleRepository styles) {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("beers.query.parallelism", "1")
+                .withProperty("beers.persistence.directory", directory.toString());
+        return new BeerRepositoryImpl(styles, new UserRepositoryImpl(), env);
+    }
+
+    private static Beer beer(String name, double abv, StyleRepository styles) {
+        Beer beer = new Beer(0, name, abv);
+        beer.setStyle(styles.get(1));
+        return beer;
+    }
+
+    private static List<String> names(List<Beer> beers) {
+        return beers.stream().map(Beer::getName).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.company.web.springdemo.repositories;
+
+import com.company.web.springdemo.exceptions.EntityNotFoundException;
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerQuery;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BeerRepositoryMappedFileImplTests {
+
+    private static final int SLOT_SIZE = 128;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final StyleRepository styles = new StyleRepositoryImpl();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesSurviveRestart() {
+        BeerRepositoryMappedFileImpl repository = open(10_000);
+        repository.create(List.of(beer("Glarus English Ale", 4.6), beer("Rhombus Porter", 5.0)));
+        Beer stout = beer("Opasen Stout", 6.6);
+        repository.create(stout);
+        repository.update(renamed(stout.getId(), "Opasen Char", 7.0));
+        repository.delete(2);
+        repository.close();
+
+        BeerRepositoryMappedFileImpl reopened = open(10_000);
+        try {
+            assertEquals(List.of("Glarus English Ale", "Opasen Char"), names(reopened.get(BeerQuery.ALL)));
+            assertEquals(7.0, reopened.get("Opasen Char").getAbv());
+            assertThrows(EntityNotFoundException.class, () -> reopened.get("Opasen Stout"));
+            assertThrows(EntityNotFoundException.class, () -> reopened.get(2));
+
+            // New ids continue after the deleted and updated ones.
+            Beer next = beer("Next Bock", 6.0);
+            reopened.create(next);
+            assertEquals(4, next.getId());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void tornLogTailIsDroppedOnReplay() throws IOException {
+        BeerRepositoryMappedFileImpl crashed = open(10_000);
+        crashed.create(List.of(beer("Glarus English Ale", 4.6), beer("Rhombus Porter", 5.0)));
+        crashed.update(renamed(1, "Glarus Pale Ale", 4.8));
+        // The repository is abandoned without closing, so its update is only in the log; a second update
+        // was cut off partway through its slot.
+        Path log = directory.resolve("beers.log");
+        assertEquals(SLOT_SIZE, Files.size(log));
+        Files.write(log, new byte[SLOT_SIZE / 2], StandardOpenOption.APPEND);
+
+        BeerRepositoryMappedFileImpl recovered = open(10_000);
+        try {
+            assertEquals(SLOT_SIZE, Files.size(log));
+            assertEquals(List.of("Glarus Pale Ale", "Rhombus Porter"), names(recovered.get(BeerQuery.ALL)));
+            assertEquals(4.8, recovered.get(1).getAbv());
+
+            // The next record starts on a slot boundary again.
+            recovered.delete(2);
+            assertEquals(2L * SLOT_SIZE, Files.size(log));
+        } finally {
+            recovered.close();
+        }
+        BeerRepositoryMappedFileImpl reopened = open(10_000);
+        try {
+            assertEquals(List.of("Glarus Pale Ale"), names(reopened.get(BeerQuery.ALL)));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void compactionFoldsTheLogIntoTheDataFile() throws IOException {
+        BeerRepositoryMappedFileImpl repository = open(10_000);
+        repository.create(List.of(beer("Glarus English Ale", 4.6), beer("Rhombus Porter", 5.0)));
+        repository.update(renamed(1, "Glarus Pale Ale", 4.8));
+        repository.delete(2);
+        Path log = directory.resolve("beers.log");
+        assertEquals(2L * SLOT_SIZE, Files.size(log));
+
+        repository.compact();
+
+        assertEquals(0, Files.size(log));
+        assertEquals(List.of("Glarus Pale Ale"), names(repository.get(BeerQuery.ALL)));
+        // Abandoned without closing: whatever the reopened store sees now comes from the data file alone.
+        BeerRepositoryMappedFileImpl reopened = open(10_000);
+        try {
+            assertEquals(List.of("Glarus Pale Ale"), names(reopened.get(BeerQuery.ALL)));
+            assertThrows(EntityNotFoundException.class, () -> reopened.get(2));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void logIsCompactedOnceTheThresholdIsReached() throws IOException {
+        // The threshold counts changed slots, not log records.
+        BeerRepositoryMappedFileImpl repository = open(2);
+        try {
+            repository.create(beer("Glarus English Ale", 4.6));
+            Path log = directory.resolve("beers.log");
+            repository.update(renamed(1, "Glarus Pale Ale", 4.7));
+            repository.update(renamed(1, "Glarus Amber Ale", 4.8));
+            assertEquals(2L * SLOT_SIZE, Files.size(log));
+
+            repository.create(beer("Rhombus Porter", 5.0));
+            repository.update(renamed(2, "Rhombus Dark Porter", 5.2));
+
+            assertEquals(0, Files.size(log));
+            assertEquals(List.of("Glarus Amber Ale", "Rhombus Dark Porter"), names(repository.get(BeerQuery.ALL)));
+        } finally {
+            repository.close();
+        }
+    }
+
+    @Test
+    void dataFileIsRemappedWhenItGrows() throws IOException {
+        BeerRepositoryMappedFileImpl repository = open(10_000);
+        List<Beer> batch = new ArrayList<>();
+        for (int i = 1; i <= INITIAL_CAPACITY - 1; i++) {
+            batch.add(beer("Batch Ale " + i, 5.0));
+        }
+        repository.create(batch);
+        Path data = directory.resolve("beers.dat");
+        long initialSize = Files.size(data);
+        // A single create crosses the initial capacity, then a batch grows the file again partway through.
+        repository.create(beer("Single Ale 1", 5.0));
+        repository.create(beer("Single Ale 2", 5.0));
+        List<Beer> overflow = new ArrayList<>();
+        for (int i = 1; i <= 2 * INITIAL_CAPACITY; i++) {
+            overflow.add(beer("Overflow Ale " + i, 6.0));
+        }
+        repository.create(overflow);
+
+        int total = 3 * INITIAL_CAPACITY + 1;
+        try {
+            assertTrue(Files.size(data) > initialSize);
+            assertEquals(total, repository.get(BeerQuery.ALL).size());
+            assertEquals("Single Ale 2", repository.get(INITIAL_CAPACITY + 1).getName());
+            assertEquals(total, repository.get("Overflow Ale " + 2 * INITIAL_CAPACITY).getId());
+        } finally {
+            repository.close();
+        }
+
+        BeerRepositoryMappedFileImpl reopened = open(10_000);
+        try {
+            assertEquals(total, reopened.get(BeerQuery.ALL).size());
+            assertEquals("Batch Ale 1", reopened.get(1).getName());
+            assertEquals(total, reopened.get("Overflow Ale " + 2 * INITIAL_CAPACITY).getId());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    private BeerRepositoryMappedFileImpl open(int compactionThreshold) {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("beers.store.directory", directory.toString())
+                .withProperty("beers.store.compaction-threshold", String.valueOf(compactionThreshold))
+                .withProperty("beers.store.compaction-interval-seconds", "3600");
+        return new BeerRepositoryMappedFileImpl(styles, new UserRepositoryImpl(), env);
+    }
+
+    private Beer beer(String name, double abv) {
+        Beer beer = new Beer(0, name, abv);
+        beer.setStyle(styles.get(1));
+        return beer;
+    }
+
+    private Beer renamed(int id, String name, double abv) {
+        Beer beer = beer(name, abv);
+        beer.setId(id);
+        return beer;
+    }
+
+    private static List<String> names(List<Beer> beers) {
+        return beers.stream().map(Beer::getName).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.company.web.springdemo.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteAheadLogTests {
+
+    private static final int HEADER_SIZE = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tornTailIsTruncatedAndEarlierRecordsReplayed() throws IOException {
+        writeRecords("first", "second", "third");
+        Path segment = onlySegment();
+        long intactSize = Files.size(segment);
+        // A frame header promising more bytes than the append managed to write.
+        Files.write(segment, ByteBuffer.allocate(HEADER_SIZE + 3).putInt(100).putInt(0).array(),
+                StandardOpenOption.APPEND);
+
+        assertEquals(List.of("first", "second", "third"), replay());
+        assertEquals(intactSize, Files.size(segment));
+        assertEquals(List.of("first", "second", "third"), replay());
+    }
+
+    @Test
+    void lastRecordFailingItsChecksumIsTruncated() throws IOException {
+        writeRecords("first", "second", "third");
+        Path segment = onlySegment();
+        long size = Files.size(segment);
+        flipByte(segment, size - 1);
+
+        assertEquals(List.of("first", "second"), replay());
+        assertEquals(size - HEADER_SIZE - "third".length(), Files.size(segment));
+    }
+
+    @Test
+    void corruptMiddleRecordFailsRecoveryInsteadOfDroppingLaterRecords() throws IOException {
+        writeRecords("first", "second", "third");
+        Path segment = onlySegment();
+        long size = Files.size(segment);
+        flipByte(segment, HEADER_SIZE + "first".length() + HEADER_SIZE);
+
+        assertThrows(IOException.class, this::replay);
+        assertEquals(size, Files.size(segment));
+    }
+
+    @Test
+    void replayStartsAtTheRequestedSegment() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(directory, Long.MAX_VALUE);
+        log.append(List.of(bytes("before"))).join();
+        long firstSegment = log.rotate();
+        log.append(List.of(bytes("after"))).join();
+        log.close();
+
+        List<String> replayed = new ArrayList<>();
+        WriteAheadLog.replay(directory, firstSegment,
+                record -> replayed.add(new String(record.readAllBytes(), StandardCharsets.UTF_8)));
+        assertEquals(List.of("after"), replayed);
+    }
+
+    private void writeRecords(String... records) throws IOException {
+        WriteAheadLog log = new WriteAheadLog(directory, Long.MAX_VALUE);
+        for (String record : records) {
+            log.append(List.of(bytes(record))).join();
+        }
+        log.close();
+    }
+
+    private List<String> replay() throws IOException {
+        List<String> replayed = new ArrayList<>();
+        WriteAheadLog.replay(directory, 1,
+                record -> replayed.add(new String(record.readAllBytes(), StandardCharsets.UTF_8)));
+        return replayed;
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.collect(Collectors.toList());
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+
+    private static void flipByte(Path file, long position) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0xFF);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
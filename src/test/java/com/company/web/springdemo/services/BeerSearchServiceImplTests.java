@@ -0,0 +1,164 @@
+package com.company.web.springdemo.services;
+
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerMatch;
+import com.company.web.springdemo.models.BeerQuery;
+import com.company.web.springdemo.repositories.BeerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BeerSearchServiceImplTests {
+
+    @Test
+    void writeCommittedWhileTheInitialLoadStreamsIsNotLost() throws Exception {
+        CountDownLatch streaming = new CountDownLatch(1);
+        CountDownLatch committed = new CountDownLatch(1);
+        BeerSearchServiceImpl service = new BeerSearchServiceImpl(
+                new StreamingRepository(List.of(new Beer(1, "Glarus English Ale", 4.6)), streaming, committed),
+                new MockEnvironment());
+
+        Thread search = new Thread(() -> service.search("glarus", 2, 10));
+        search.start();
+        assertTrue(streaming.await(5, TimeUnit.SECONDS));
+
+        // The stream has already passed the point where this row would appear.
+        Thread write = new Thread(() -> service.index(new Beer(2, "Rhombus Porter", 5.0)));
+        write.start();
+        awaitBlockedOrDone(write);
+        committed.countDown();
+        search.join(5000);
+        write.join(5000);
+
+        assertEquals(List.of(2), ids(service.search("rhombus porter", 0, 10)));
+        assertEquals(List.of(1), ids(service.search("glarus english ale", 0, 10)));
+        assertEquals(2, service.suggest("", 10).size());
+    }
+
+    @Test
+    void writeReplayedAfterTheLoadAlreadyStreamedItLeavesOneEntry() throws Exception {
+        CountDownLatch streaming = new CountDownLatch(1);
+        CountDownLatch committed = new CountDownLatch(1);
+        Beer beer = new Beer(1, "Glarus English Ale", 4.6);
+        BeerSearchServiceImpl service = new BeerSearchServiceImpl(
+                new StreamingRepository(List.of(beer), streaming, committed), new MockEnvironment());
+
+        Thread search = new Thread(() -> service.search("glarus", 2, 10));
+        search.start();
+        assertTrue(streaming.await(5, TimeUnit.SECONDS));
+
+        Thread write = new Thread(() -> service.index(beer));
+        write.start();
+        awaitBlockedOrDone(write);
+        committed.countDown();
+        search.join(5000);
+        write.join(5000);
+
+        assertEquals(List.of(1), ids(service.search("glarus english ale", 0, 10)));
+        assertEquals(1, service.suggest("glarus", 10).size());
+    }
+
+    @Test
+    void writeBeforeTheFirstSearchIsPickedUpByTheLoad() {
+        StreamingRepository repository = new StreamingRepository(List.of(), null, null);
+        BeerSearchServiceImpl service = new BeerSearchServiceImpl(repository, new MockEnvironment());
+        Beer beer = new Beer(1, "Opasen Char", 6.6);
+        repository.beers = List.of(beer);
+        service.index(beer);
+
+        assertEquals(List.of(1), ids(service.search("opasen char", 0, 10)));
+        assertEquals(1, service.suggest("opa", 10).size());
+    }
+
+    private static void awaitBlockedOrDone(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TERMINATED
+                && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static List<Integer> ids(List<BeerMatch> matches) {
+        return matches.stream().map(BeerMatch::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Streams its rows, then signals {@code streaming} and holds the stream open until {@code committed}
+     * opens, so a test can land a write after the stream has passed it.
+     */
+    private static final class StreamingRepository implements BeerRepository {
+
+        private List<Beer> beers;
+        private final CountDownLatch streaming;
+        private final CountDownLatch committed;
+
+        private StreamingRepository(List<Beer> beers, CountDownLatch streaming, CountDownLatch committed) {
+            this.beers = beers;
+            this.streaming = streaming;
+            this.committed = committed;
+        }
+
+        @Override
+        public void stream(BeerQuery query, Consumer<Beer> action) {
+            beers.forEach(action);
+            if (streaming != null) {
+                streaming.countDown();
+                try {
+                    committed.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public List<Beer> get(BeerQuery query) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Beer get(int id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Beer get(String name) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<String> getExistingNames(Collection<String> names) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void create(Beer beer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void create(List<Beer> beers) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void update(Beer beer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void delete(int id) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.company.web.springdemo.services;
+
+import com.company.web.springdemo.exceptions.EntityDuplicateException;
+import com.company.web.springdemo.exceptions.EntityNotFoundException;
+import com.company.web.springdemo.models.Beer;
+import com.company.web.springdemo.models.BeerBatchOutcome;
+import com.company.web.springdemo.models.BeerMatch;
+import com.company.web.springdemo.models.BeerQuery;
+import com.company.web.springdemo.models.BeerSuggestion;
+import com.company.web.springdemo.models.Style;
+import com.company.web.springdemo.models.User;
+import com.company.web.springdemo.repositories.BeerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BeerServiceImplTests {
+
+    private final GeneratedKeysRepository repository = new GeneratedKeysRepository();
+    private final BeerSearchServiceImpl searchService = new BeerSearchServiceImpl(repository, new MockEnvironment());
+    private final BeerServiceImpl service = new BeerServiceImpl(repository, searchService,
+            new BeerQueryCache(new MockEnvironment()), new BeerVersionTracker());
+    private final User admin = new User(1, "admin", "secret", true);
+
+    @Test
+    void createdBeerIsIndexedUnderItsGeneratedId() {
+        // Load the search index first, so the create has to reach it through index().
+        assertTrue(searchService.suggest("rhombus", 10).isEmpty());
+
+        Beer beer = beer("Rhombus Porter");
+        service.create(beer, admin);
+
+        assertEquals(101, beer.getId());
+        assertEquals(List.of(101), suggestionIds(searchService.suggest("rhombus", 10)));
+        assertEquals(List.of(101), matchIds(searchService.search("rhombus porter", 0, 10)));
+    }
+
+    @Test
+    void deletedBeerLeavesTheSearchIndex() {
+        assertTrue(searchService.suggest("rhombus", 10).isEmpty());
+        Beer beer = beer("Rhombus Porter");
+        service.create(beer, admin);
+
+        service.delete(beer.getId(), admin);
+
+        assertTrue(searchService.suggest("rhombus", 10).isEmpty());
+        assertTrue(searchService.search("rhombus porter", 0, 10).isEmpty());
+    }
+
+    @Test
+    void batchCreatedBeersAreIndexedUnderTheirGeneratedIds() {
+        assertTrue(searchService.suggest("glarus", 10).isEmpty());
+        List<Beer> beers = List.of(beer("Glarus English Ale"), beer("Glarus Dark"));
+
+        service.create(beers, admin);
+
+        assertEquals(List.of(102, 101), suggestionIds(searchService.suggest("glarus", 10)));
+    }
+
+    @Test
+    void batchCreateMatchesNamesExactlyLikeSingleCreate() {
+        service.create(beer("Rhombus Porter"), admin);
+
+        List<BeerBatchOutcome> outcomes = service.create(List.of(beer("rhombus porter"), beer("Rhombus Porter"),
+                beer("Glarus Dark"), beer("Glarus Dark"), beer("GLARUS DARK")), admin);
+        service.create(beer("RHOMBUS PORTER"), admin);
+
+        assertEquals(List.of(BeerBatchOutcome.CREATED, BeerBatchOutcome.DUPLICATE_NAME, BeerBatchOutcome.CREATED,
+                BeerBatchOutcome.DUPLICATE_NAME, BeerBatchOutcome.CREATED), outcomes);
+        assertThrows(EntityDuplicateException.class, () -> service.create(beer("Glarus Dark"), admin));
+    }
+
+    private static Beer beer(String name) {
+        Beer beer = new Beer();
+        beer.setName(name);
+        beer.setAbv(5.0);
+        beer.setStyle(new Style(1, "Special Ale"));
+        return beer;
+    }
+
+    private static List<Integer> suggestionIds(List<BeerSuggestion> suggestions) {
+        return suggestions.stream().map(BeerSuggestion::getId).collect(Collectors.toList());
+    }
+
+    private static List<Integer> matchIds(List<BeerMatch> matches) {
+        return matches.stream().map(BeerMatch::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Assigns ids on insert the way the database does, starting from 101.
+     */
+    private static final class GeneratedKeysRepository implements BeerRepository {
+
+        private final Map<Integer, Beer> beers = new TreeMap<>();
+        private int lastId = 100;
+
+        @Override
+        public List<Beer> get(BeerQuery query) {
+            return new ArrayList<>(beers.values());
+        }
+
+        @Override
+        public void stream(BeerQuery query, Consumer<Beer> action) {
+            beers.values().forEach(action);
+        }
+
+        @Override
+        public Beer get(int id) {
+            Beer beer = beers.get(id);
+            if (beer == null) {
+                throw new EntityNotFoundException("Beer", id);
+            }
+            return beer;
+        }
+
+        @Override
+        public Beer get(String name) {
+            return beers.values().stream()
+                    .filter(beer -> beer.getName().equals(name))
+                    .findFirst()
+                    .orElseThrow(() -> new EntityNotFoundException("Beer", "name", name));
+        }
+
+        @Override
+        public List<String> getExistingNames(Collection<String> names) {
+            return beers.values().stream()
+                    .map(Beer::getName)
+                    .filter(names::contains)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public void create(Beer beer) {
+            beer.setId(++lastId);
+            beers.put(beer.getId(), beer);
+        }
+
+        @Override
+        public void create(List<Beer> beers) {
+            beers.forEach(this::create);
+        }
+
+        @Override
+        public void update(Beer beer) {
+            beers.put(beer.getId(), beer);
+        }
+
+        @Override
+        public void delete(int id) {
+            beers.remove(id);
+        }
+    }
+
+}